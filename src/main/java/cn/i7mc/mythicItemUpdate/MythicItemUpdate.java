@@ -1,5 +1,7 @@
 package cn.i7mc.mythicItemUpdate;
 
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import cn.i7mc.mythicItemUpdate.listener.ChunkLoadListener;
 import cn.i7mc.mythicItemUpdate.listener.ReloadEventListener;
 import cn.i7mc.mythicItemUpdate.listener.UpdateEventHandler;
 import cn.i7mc.mythicItemUpdate.manager.ConfigManager;
@@ -17,6 +19,9 @@ import org.bukkit.plugin.java.JavaPlugin;
  */
 public final class MythicItemUpdate extends JavaPlugin {
 
+    // 任务执行后端
+    private ExecutionBackend executionBackend;
+
     // 管理器实例
     private ConfigManager configManager;
     private MessageManager messageManager;
@@ -26,12 +31,17 @@ public final class MythicItemUpdate extends JavaPlugin {
     // 事件监听器实例
     private ReloadEventListener reloadEventListener;
     private UpdateEventHandler updateEventHandler;
+    private ChunkLoadListener chunkLoadListener;
 
     @Override
     public void onEnable() {
         try {
             getLogger().info("正在启用 MythicItemUpdate...");
 
+            // 根据服务端类型选择执行后端
+            executionBackend = ExecutionBackend.create(this);
+            getLogger().info("任务执行模式: " + executionBackend.getName());
+
             // 初始化管理器
             if (!initializeManagers()) {
                 getLogger().severe("管理器初始化失败，插件将被禁用");
@@ -147,6 +157,13 @@ public final class MythicItemUpdate extends JavaPlugin {
                 return false;
             }
 
+            // 初始化区块加载监听器
+            chunkLoadListener = new ChunkLoadListener(this);
+            if (!chunkLoadListener.enable()) {
+                getLogger().severe("区块加载监听器初始化失败");
+                return false;
+            }
+
             getLogger().info("所有事件监听器初始化成功");
             return true;
 
@@ -195,6 +212,11 @@ public final class MythicItemUpdate extends JavaPlugin {
      */
     private void shutdownEventListeners() {
         try {
+            if (chunkLoadListener != null) {
+                chunkLoadListener.disable();
+                chunkLoadListener = null;
+            }
+
             if (updateEventHandler != null) {
                 updateEventHandler.disable();
                 updateEventHandler = null;
@@ -215,6 +237,15 @@ public final class MythicItemUpdate extends JavaPlugin {
 
     // ==================== 管理器获取方法 ====================
 
+    /**
+     * 获取任务执行后端
+     *
+     * @return 执行后端实例
+     */
+    public ExecutionBackend getExecutionBackend() {
+        return executionBackend;
+    }
+
     /**
      * 获取配置管理器
      *
@@ -268,4 +299,13 @@ public final class MythicItemUpdate extends JavaPlugin {
     public UpdateEventHandler getUpdateEventHandler() {
         return updateEventHandler;
     }
+
+    /**
+     * 获取区块加载监听器
+     *
+     * @return 区块加载监听器实例
+     */
+    public ChunkLoadListener getChunkLoadListener() {
+        return chunkLoadListener;
+    }
 }
@@ -0,0 +1,76 @@
+package cn.i7mc.mythicItemUpdate.core;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Bukkit执行后端
+ * 所有任务都在服务器主线程上执行
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class BukkitExecutionBackend implements ExecutionBackend {
+
+    private final Plugin plugin;
+
+    public BukkitExecutionBackend(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getName() {
+        return "Bukkit";
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    @Override
+    public TaskHandle runTimer(Runnable task, long delayTicks, long periodTicks) {
+        BukkitTask bukkitTask = plugin.getServer().getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return bukkitTask::cancel;
+    }
+
+    @Override
+    public void runLater(Runnable task, long delayTicks) {
+        plugin.getServer().getScheduler().runTaskLater(plugin, task, delayTicks);
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        Runnable guarded = () -> {
+            if (isPresent(entity)) {
+                task.run();
+            } else if (retired != null) {
+                retired.run();
+            }
+        };
+
+        if (delayTicks > 0) {
+            plugin.getServer().getScheduler().runTaskLater(plugin, guarded, delayTicks);
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, guarded);
+        }
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        plugin.getServer().getScheduler().runTask(plugin, task);
+    }
+
+    /**
+     * 检查实体是否仍在世界中（玩家以是否在线为准）
+     *
+     * @param entity 实体
+     * @return 是否存在
+     */
+    private boolean isPresent(Entity entity) {
+        return entity instanceof Player ? ((Player) entity).isOnline() : entity.isValid();
+    }
+}
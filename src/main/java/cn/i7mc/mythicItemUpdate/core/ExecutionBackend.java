@@ -0,0 +1,102 @@
+package cn.i7mc.mythicItemUpdate.core;
+
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * 任务执行后端
+ * 屏蔽Bukkit主线程调度和Folia区域调度之间的差异
+ * 玩家相关的任务交给实体所属线程，区块相关的任务交给区块所属区域
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public interface ExecutionBackend {
+
+    /**
+     * 获取后端名称
+     *
+     * @return 后端名称
+     */
+    String getName();
+
+    /**
+     * 是否为区域化调度（Folia），此时不存在唯一的主线程
+     *
+     * @return 是否区域化
+     */
+    boolean isRegionized();
+
+    /**
+     * 在全局线程上周期执行任务
+     * Bukkit下为主线程，Folia下为全局区域线程
+     *
+     * @param task 任务
+     * @param delayTicks 首次延迟（tick）
+     * @param periodTicks 执行间隔（tick）
+     * @return 任务句柄
+     */
+    TaskHandle runTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * 在全局线程上延迟执行一次任务
+     * Bukkit下为主线程，Folia下为全局区域线程
+     *
+     * @param task 任务
+     * @param delayTicks 延迟（tick）
+     */
+    void runLater(Runnable task, long delayTicks);
+
+    /**
+     * 在实体所属的线程上执行任务
+     *
+     * @param entity 实体
+     * @param task 任务
+     * @param retired 实体在执行前被移除时的回调，可为null
+     * @param delayTicks 延迟（tick）
+     */
+    void runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks);
+
+    /**
+     * 在区块所属的线程上执行任务
+     *
+     * @param world 世界
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @param task 任务
+     */
+    void runAtChunk(World world, int chunkX, int chunkZ, Runnable task);
+
+    /**
+     * 根据服务端类型创建执行后端
+     *
+     * @param plugin 插件实例
+     * @return 执行后端
+     */
+    static ExecutionBackend create(Plugin plugin) {
+        return isFolia() ? new FoliaExecutionBackend(plugin) : new BukkitExecutionBackend(plugin);
+    }
+
+    /**
+     * 检查当前服务端是否为Folia
+     *
+     * @return 是否为Folia
+     */
+    static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 已调度任务的句柄
+     */
+    @FunctionalInterface
+    interface TaskHandle {
+        void cancel();
+    }
+}
@@ -0,0 +1,61 @@
+package cn.i7mc.mythicItemUpdate.core;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Folia执行后端
+ * 实体任务交给实体调度器，区块任务交给所属区域调度器，各区域可在不同线程上并行执行
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class FoliaExecutionBackend implements ExecutionBackend {
+
+    private final Plugin plugin;
+
+    public FoliaExecutionBackend(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getName() {
+        return "Folia";
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    @Override
+    public TaskHandle runTimer(Runnable task, long delayTicks, long periodTicks) {
+        // Folia的延迟和间隔必须至少为1tick
+        ScheduledTask scheduledTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin,
+            scheduled -> task.run(), Math.max(1L, delayTicks), Math.max(1L, periodTicks));
+        return scheduledTask::cancel;
+    }
+
+    @Override
+    public void runLater(Runnable task, long delayTicks) {
+        Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduled -> task.run(), Math.max(1L, delayTicks));
+    }
+
+    @Override
+    public void runForEntity(Entity entity, Runnable task, Runnable retired, long delayTicks) {
+        boolean scheduled = entity.getScheduler().execute(plugin, task, retired, Math.max(1L, delayTicks));
+
+        // 实体已被移除时不会调用retired回调，这里补上
+        if (!scheduled && retired != null) {
+            retired.run();
+        }
+    }
+
+    @Override
+    public void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        Bukkit.getRegionScheduler().execute(plugin, world, chunkX, chunkZ, task);
+    }
+}
@@ -16,6 +16,9 @@ public class BatchUpdateStatistics {
     private final AtomicInteger totalFailed;
     private final AtomicInteger playersProcessed;
     private final AtomicInteger containersProcessed;
+    private final AtomicInteger memoHits;
+    private final AtomicInteger memoMisses;
+    private final AtomicInteger deferred;
     
     public BatchUpdateStatistics() {
         this.totalProcessed = new AtomicInteger(0);
@@ -24,6 +27,9 @@ public class BatchUpdateStatistics {
         this.totalFailed = new AtomicInteger(0);
         this.playersProcessed = new AtomicInteger(0);
         this.containersProcessed = new AtomicInteger(0);
+        this.memoHits = new AtomicInteger(0);
+        this.memoMisses = new AtomicInteger(0);
+        this.deferred = new AtomicInteger(0);
     }
     
     /**
@@ -71,6 +77,27 @@ public class BatchUpdateStatistics {
         containersProcessed.incrementAndGet();
     }
     
+    /**
+     * 增加替换结果备忘录的命中次数
+     */
+    public void incrementMemoHits() {
+        memoHits.incrementAndGet();
+    }
+    
+    /**
+     * 增加替换结果备忘录的未命中次数
+     */
+    public void incrementMemoMisses() {
+        memoMisses.incrementAndGet();
+    }
+    
+    /**
+     * 增加因超出时间预算而推迟处理的物品数量
+     */
+    public void incrementDeferred() {
+        deferred.incrementAndGet();
+    }
+    
     /**
      * 获取处理总数
      * 
@@ -125,6 +152,46 @@ public class BatchUpdateStatistics {
         return containersProcessed.get();
     }
 
+    /**
+     * 获取替换结果备忘录的命中次数
+     *
+     * @return 命中次数
+     */
+    public int getMemoHits() {
+        return memoHits.get();
+    }
+
+    /**
+     * 获取替换结果备忘录的未命中次数
+     *
+     * @return 未命中次数
+     */
+    public int getMemoMisses() {
+        return memoMisses.get();
+    }
+
+    /**
+     * 获取因超出时间预算而推迟处理的物品数量
+     *
+     * @return 推迟的物品数量
+     */
+    public int getDeferred() {
+        return deferred.get();
+    }
+
+    /**
+     * 获取替换结果备忘录的命中率
+     *
+     * @return 命中率（百分比）
+     */
+    public double getMemoHitRate() {
+        int total = getMemoHits() + getMemoMisses();
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) getMemoHits() / total * 100.0;
+    }
+
     /**
      * 获取处理的物品数量（别名方法）
      *
@@ -215,17 +282,22 @@ public class BatchUpdateStatistics {
         totalFailed.set(0);
         playersProcessed.set(0);
         containersProcessed.set(0);
+        memoHits.set(0);
+        memoMisses.set(0);
+        deferred.set(0);
     }
     
     @Override
     public String toString() {
-        return String.format("BatchUpdateStatistics{processed=%d, updated=%d, skipped=%d, failed=%d, players=%d, containers=%d, successRate=%.1f%%}",
+        return String.format("BatchUpdateStatistics{processed=%d, updated=%d, skipped=%d, failed=%d, deferred=%d, players=%d, containers=%d, successRate=%.1f%%, memoHitRate=%.1f%%}",
             getTotalProcessed(),
             getTotalUpdated(),
             getTotalSkipped(),
             getTotalFailed(),
+            getDeferred(),
             getPlayersProcessed(),
             getContainersProcessed(),
-            getSuccessRate());
+            getSuccessRate(),
+            getMemoHitRate());
     }
 }
@@ -1,34 +1,43 @@
 package cn.i7mc.mythicItemUpdate.data;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * 玩家物品数据
+ * 只记录玩家的UUID和名称，不持有玩家对象，跨tick保存时不会阻止已退出玩家的对象被回收
  * 
  * @author i7mc
  * @version 1.0
  */
 public class PlayerItemData {
 
+    private final UUID playerId;
     private final String playerName;
-    private final Player player;
     private final List<MythicItemData> inventoryItems;
     private final List<MythicItemData> enderChestItems;
 
-    public PlayerItemData(String playerName) {
+    public PlayerItemData(UUID playerId, String playerName) {
+        this.playerId = playerId;
         this.playerName = playerName;
-        this.player = null;
         this.inventoryItems = new ArrayList<>();
         this.enderChestItems = new ArrayList<>();
     }
 
     public PlayerItemData(Player player) {
-        this.playerName = player.getName();
-        this.player = player;
-        this.inventoryItems = new ArrayList<>();
-        this.enderChestItems = new ArrayList<>();
+        this(player.getUniqueId(), player.getName());
+    }
+    
+    /**
+     * 获取玩家UUID
+     *
+     * @return 玩家UUID
+     */
+    public UUID getPlayerId() {
+        return playerId;
     }
     
     /**
@@ -41,12 +50,12 @@ public class PlayerItemData {
     }
 
     /**
-     * 获取玩家实例
+     * 按UUID获取在线的玩家实例
      *
-     * @return 玩家实例
+     * @return 玩家实例，玩家已离线时返回null
      */
     public Player getPlayer() {
-        return player;
+        return Bukkit.getPlayer(playerId);
     }
     
     /**
@@ -0,0 +1,277 @@
+package cn.i7mc.mythicItemUpdate.listener;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 区块加载监听器（惰性模式）
+ * 区块加载时将其加入队列，每tick处理少量区块中的容器和掉落物
+ * 处理完成的区块在PDC中记录物品定义指纹，定义变化前不会再次处理
+ * 启用掉落物更新时等待区块实体加载，等待间隔逐次翻倍，超过次数后只处理容器且不记录指纹
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class ChunkLoadListener extends AbstractEventListener {
+
+    // 等待区块实体加载的最多次数，间隔依次为1、2、4…tick
+    private static final int MAX_ENTITY_WAITS = 6;
+
+    private final NamespacedKey chunkVersionKey;
+    private final Queue<ChunkKey> pendingChunks;
+    private final Set<ChunkKey> queuedChunks;
+    private final Map<ChunkKey, Integer> entityWaits;
+    private ExecutionBackend.TaskHandle drainTask;
+
+    public ChunkLoadListener(MythicItemUpdate plugin) {
+        super(plugin);
+        this.chunkVersionKey = new NamespacedKey(plugin, "chunk_version");
+        this.pendingChunks = new ConcurrentLinkedQueue<>();
+        this.queuedChunks = ConcurrentHashMap.newKeySet();
+        this.entityWaits = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    protected boolean initializeListener() {
+        drainTask = plugin.getExecutionBackend().runTimer(this::drainQueue, 1L, 1L);
+        info("区块加载监听器初始化成功");
+        return true;
+    }
+
+    @Override
+    protected boolean reloadListener() {
+        info("区块加载监听器重载成功");
+        return true;
+    }
+
+    @Override
+    protected void shutdownListener() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        pendingChunks.clear();
+        queuedChunks.clear();
+        entityWaits.clear();
+    }
+
+    @Override
+    public String getName() {
+        return "ChunkLoadListener";
+    }
+
+    /**
+     * 监听区块加载事件
+     * 物品定义指纹与区块记录不一致时加入处理队列
+     *
+     * @param event 区块加载事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        safeEventHandle("ChunkLoadEvent", () -> {
+            if (!shouldHandleEvent() || !plugin.getConfigManager().isUpdateOnChunkLoadEnabled()) {
+                return;
+            }
+
+            Chunk chunk = event.getChunk();
+            if (isUpToDate(chunk)) {
+                return;
+            }
+
+            // 新生成的区块中不会有旧版本物品，直接记录指纹
+            if (event.isNewChunk()) {
+                stamp(chunk, plugin.getItemDetector().getTemplateCache().getDefinitionsVersion());
+                return;
+            }
+
+            ChunkKey key = new ChunkKey(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+            if (queuedChunks.add(key)) {
+                pendingChunks.add(key);
+            }
+        });
+    }
+
+    /**
+     * 获取等待处理的区块数量
+     *
+     * @return 区块数量
+     */
+    public int getPendingCount() {
+        return queuedChunks.size();
+    }
+
+    /**
+     * 每tick从队列中取出少量区块处理
+     */
+    private void drainQueue() {
+        if (pendingChunks.isEmpty()) {
+            return;
+        }
+
+        ExecutionBackend backend = plugin.getExecutionBackend();
+        int limit = plugin.getConfigManager().getChunksPerTick();
+
+        for (int i = 0; i < limit; i++) {
+            ChunkKey key = pendingChunks.poll();
+            if (key == null) {
+                break;
+            }
+
+            World world = Bukkit.getWorld(key.worldId);
+            if (world == null) {
+                forget(key);
+                continue;
+            }
+
+            if (backend.isRegionized()) {
+                backend.runAtChunk(world, key.x, key.z, () -> processChunk(world, key));
+            } else {
+                processChunk(world, key);
+            }
+        }
+    }
+
+    /**
+     * 处理单个区块，必须在区块所属的线程调用
+     *
+     * @param world 世界
+     * @param key 区块键
+     */
+    private void processChunk(World world, ChunkKey key) {
+        try {
+            if (!world.isChunkLoaded(key.x, key.z)) {
+                forget(key);
+                return;
+            }
+
+            Chunk chunk = world.getChunkAt(key.x, key.z);
+
+            // 实体与区块分开加载，只有需要更新掉落物时才等待实体就绪
+            boolean entitiesReady = !plugin.getConfigManager().isUpdateDroppedItemsEnabled() || chunk.isEntitiesLoaded();
+            if (!entitiesReady && scheduleEntityWait(key)) {
+                return;
+            }
+
+            forget(key);
+            if (isUpToDate(chunk)) {
+                return;
+            }
+
+            long version = plugin.getItemDetector().getTemplateCache().getDefinitionsVersion();
+            // 实体始终未加载时掉落物没有检查，不记录指纹，区块下次加载时再处理
+            if (plugin.getBatchUpdateManager().updateChunk(chunk).isSuccess() && entitiesReady) {
+                stamp(chunk, version);
+            }
+
+        } catch (Exception e) {
+            forget(key);
+            handleError(String.format("处理区块失败: %s[%d,%d]", world.getName(), key.x, key.z), e);
+        }
+    }
+
+    /**
+     * 延迟后把等待实体加载的区块放回队列，每次等待的间隔翻倍
+     *
+     * @param key 区块键
+     * @return 是否继续等待，超过等待次数时返回false
+     */
+    private boolean scheduleEntityWait(ChunkKey key) {
+        int waits = entityWaits.merge(key, 1, Integer::sum);
+        if (waits > MAX_ENTITY_WAITS) {
+            return false;
+        }
+
+        plugin.getExecutionBackend().runLater(() -> {
+            // 等待期间监听器已关闭时不再放回
+            if (queuedChunks.contains(key)) {
+                pendingChunks.add(key);
+            }
+        }, 1L << (waits - 1));
+        return true;
+    }
+
+    /**
+     * 将区块移出队列记录
+     *
+     * @param key 区块键
+     */
+    private void forget(ChunkKey key) {
+        queuedChunks.remove(key);
+        entityWaits.remove(key);
+    }
+
+    /**
+     * 检查区块记录的指纹是否与当前物品定义一致
+     * 物品定义尚未成功构建时视为一致，不做处理
+     *
+     * @param chunk 区块
+     * @return 是否一致
+     */
+    private boolean isUpToDate(Chunk chunk) {
+        long version = plugin.getItemDetector().getTemplateCache().getDefinitionsVersion();
+        if (version == 0L) {
+            return true;
+        }
+
+        Long stamped = chunk.getPersistentDataContainer().get(chunkVersionKey, PersistentDataType.LONG);
+        return stamped != null && stamped == version;
+    }
+
+    /**
+     * 在区块中记录物品定义指纹
+     *
+     * @param chunk 区块
+     * @param version 物品定义指纹
+     */
+    private void stamp(Chunk chunk, long version) {
+        chunk.getPersistentDataContainer().set(chunkVersionKey, PersistentDataType.LONG, version);
+    }
+
+    /**
+     * 区块键
+     */
+    private static class ChunkKey {
+        private final UUID worldId;
+        private final int x;
+        private final int z;
+
+        ChunkKey(UUID worldId, int x, int z) {
+            this.worldId = worldId;
+            this.x = x;
+            this.z = z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ChunkKey)) {
+                return false;
+            }
+            ChunkKey other = (ChunkKey) o;
+            return x == other.x && z == other.z && worldId.equals(other.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(worldId, x, z);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package cn.i7mc.mythicItemUpdate.listener;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.TileState;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+/**
+ * 物品栏校验标记
+ * 在物品栏持有者的PDC中记录最近一次完整校验时的物品定义指纹：
+ * 方块容器记录在方块实体上，末影箱记录在所属玩家上
+ * 指纹与当前定义一致的物品栏在打开时无需逐格检查；物品栏内容被修改时清除标记
+ * 标记只是缓存，丢失后最多多检查一次
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class InventoryVersionStamp {
+
+    private final NamespacedKey containerKey;
+    private final NamespacedKey enderChestKey;
+
+    public InventoryVersionStamp(MythicItemUpdate plugin) {
+        this.containerKey = new NamespacedKey(plugin, "inventory_version");
+        this.enderChestKey = new NamespacedKey(plugin, "enderchest_version");
+    }
+
+    /**
+     * 检查物品栏是否已在当前定义下完整校验过
+     *
+     * @param inventory 物品栏
+     * @param version 当前物品定义指纹，为0时视为未知
+     * @return 是否已校验
+     */
+    public boolean isUpToDate(Inventory inventory, long version) {
+        if (version == 0L) {
+            return false;
+        }
+
+        PersistentDataContainer container = containerOf(inventory);
+        if (container == null) {
+            return false;
+        }
+
+        Long stamped = container.get(keyOf(inventory), PersistentDataType.LONG);
+        return stamped != null && stamped == version;
+    }
+
+    /**
+     * 记录物品栏已在当前定义下完整校验
+     *
+     * @param inventory 物品栏
+     * @param version 当前物品定义指纹，为0时不记录
+     */
+    public void stamp(Inventory inventory, long version) {
+        if (version == 0L) {
+            return;
+        }
+
+        PersistentDataContainer container = containerOf(inventory);
+        if (container != null) {
+            container.set(keyOf(inventory), PersistentDataType.LONG, version);
+        }
+    }
+
+    /**
+     * 清除物品栏的校验标记
+     *
+     * @param inventory 物品栏
+     */
+    public void clear(Inventory inventory) {
+        PersistentDataContainer container = containerOf(inventory);
+        if (container != null) {
+            container.remove(keyOf(inventory));
+        }
+    }
+
+    /**
+     * 获取物品栏持有者的PDC
+     * 使用非快照的持有者，方块容器的修改直接作用于方块实体；双箱等没有单一持有者的物品栏不记录
+     *
+     * @param inventory 物品栏
+     * @return 持有者的PDC，无法记录时返回null
+     */
+    private PersistentDataContainer containerOf(Inventory inventory) {
+        if (inventory == null) {
+            return null;
+        }
+
+        InventoryHolder holder = inventory.getHolder(false);
+        if (holder instanceof TileState) {
+            return ((TileState) holder).getPersistentDataContainer();
+        }
+        if (holder instanceof Player && inventory.equals(((Player) holder).getEnderChest())) {
+            return ((Player) holder).getPersistentDataContainer();
+        }
+        return null;
+    }
+
+    /**
+     * 获取物品栏对应的PDC键
+     *
+     * @param inventory 物品栏
+     * @return PDC键
+     */
+    private NamespacedKey keyOf(Inventory inventory) {
+        return inventory.getHolder(false) instanceof Player ? enderChestKey : containerKey;
+    }
+}
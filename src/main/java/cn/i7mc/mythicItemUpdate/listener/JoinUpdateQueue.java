@@ -0,0 +1,183 @@
+package cn.i7mc.mythicItemUpdate.listener;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 玩家加入更新队列
+ * 玩家加入后按加入顺序排队，等待加入延迟后每tick最多处理配置数量的玩家，
+ * 避免大量玩家同时加入时所有背包检查集中在同一tick执行
+ * 在轮到之前退出的玩家会被移出队列
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class JoinUpdateQueue {
+
+    private final MythicItemUpdate plugin;
+    private final Consumer<Player> updateAction;
+    private final Queue<Entry> queue;
+    private final Map<UUID, Entry> pending;
+    private final LongAdder processed;
+    private final LongAdder totalWaitMillis;
+    private final AtomicLong maxWaitMillis;
+    private ExecutionBackend.TaskHandle drainTask;
+    private volatile long currentTick;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param updateAction 轮到玩家时执行的操作，在出队任务的线程调用，需线程安全
+     */
+    public JoinUpdateQueue(MythicItemUpdate plugin, Consumer<Player> updateAction) {
+        this.plugin = plugin;
+        this.updateAction = updateAction;
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.pending = new ConcurrentHashMap<>();
+        this.processed = new LongAdder();
+        this.totalWaitMillis = new LongAdder();
+        this.maxWaitMillis = new AtomicLong(0L);
+    }
+
+    /**
+     * 启动每tick的出队任务
+     */
+    public void start() {
+        if (drainTask == null) {
+            drainTask = plugin.getExecutionBackend().runTimer(this::drain, 1L, 1L);
+        }
+    }
+
+    /**
+     * 停止出队任务并清空队列
+     */
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        queue.clear();
+        pending.clear();
+    }
+
+    /**
+     * 将玩家加入队尾，已在队列中的玩家保持原来的位置
+     *
+     * @param player 玩家
+     * @param delayTicks 加入后至少等待的tick数
+     */
+    public void enqueue(Player player, long delayTicks) {
+        Entry entry = new Entry(player.getUniqueId(), currentTick + Math.max(0L, delayTicks));
+        if (pending.putIfAbsent(entry.playerId, entry) == null) {
+            queue.add(entry);
+        }
+    }
+
+    /**
+     * 将玩家移出队列（玩家退出时调用）
+     *
+     * @param player 玩家
+     */
+    public void remove(Player player) {
+        pending.remove(player.getUniqueId());
+    }
+
+    /**
+     * 获取排队中的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * 获取已处理的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    /**
+     * 获取玩家从加入到开始更新的平均等待时间
+     *
+     * @return 平均等待时间（毫秒）
+     */
+    public long getAverageWaitMillis() {
+        long count = processed.sum();
+        return count == 0 ? 0L : totalWaitMillis.sum() / count;
+    }
+
+    /**
+     * 获取玩家从加入到开始更新的最长等待时间
+     *
+     * @return 最长等待时间（毫秒）
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    /**
+     * 每tick从队首取出已到时间的玩家，不超过每tick的玩家预算
+     * 队列按加入顺序排列且延迟相同，队首未到时间时后面的玩家也未到
+     */
+    private void drain() {
+        currentTick++;
+        int budget = plugin.getConfigManager().getJoinUpdatesPerTick();
+
+        while (budget > 0) {
+            Entry entry = queue.peek();
+            if (entry == null || entry.readyTick > currentTick) {
+                break;
+            }
+            queue.poll();
+
+            // 已退出（或退出后重新加入、以新的条目排队）的玩家跳过，不占用预算
+            if (!pending.remove(entry.playerId, entry)) {
+                continue;
+            }
+
+            Player player = Bukkit.getPlayer(entry.playerId);
+            if (player == null) {
+                continue;
+            }
+
+            long waited = System.currentTimeMillis() - entry.enqueuedAt;
+            processed.increment();
+            totalWaitMillis.add(waited);
+            maxWaitMillis.accumulateAndGet(waited, Math::max);
+
+            budget--;
+            updateAction.accept(player);
+        }
+    }
+
+    /**
+     * 队列条目
+     */
+    private static final class Entry {
+        private final UUID playerId;
+        private final long readyTick;
+        private final long enqueuedAt;
+
+        private Entry(UUID playerId, long readyTick) {
+            this.playerId = playerId;
+            this.readyTick = readyTick;
+            this.enqueuedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package cn.i7mc.mythicItemUpdate.listener;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家槽位校验缓存
+ * 记录玩家背包每个槽位最近一次校验时的模板代次和服务端物品对象，
+ * 对同一个已校验的物品重复点击时直接跳过类型解析和版本比较
+ * 按服务端物品对象的引用比较，不读取物品元数据，也不计算物品哈希
+ * 代次变化（重载）或槽位换成其他物品对象后记录自动失效，玩家退出时清除
+ * 无法取得服务端物品对象时（非CraftItemStack）不缓存，每次都完整检查
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class PlayerSlotCache {
+
+    // 玩家背包（含装备和副手）的槽位数量
+    private static final int PLAYER_SLOTS = 41;
+
+    // CraftItemStack.handle的读取句柄，第一次遇到CraftItemStack时解析，解析失败后不再尝试
+    private static volatile MethodHandle handleGetter;
+    private static volatile boolean handleUnavailable;
+
+    private final Map<UUID, SlotRecord[]> slots;
+
+    public PlayerSlotCache() {
+        this.slots = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 检查槽位中的物品是否已在当前代次校验过
+     *
+     * @param player 玩家
+     * @param slot 背包槽位
+     * @param item 槽位中的物品
+     * @param generation 当前模板代次
+     * @return 是否已校验
+     */
+    public boolean isVerified(Player player, int slot, ItemStack item, int generation) {
+        SlotRecord[] verified = slots.get(player.getUniqueId());
+        if (verified == null || slot < 0 || slot >= verified.length) {
+            return false;
+        }
+
+        SlotRecord record = verified[slot];
+        if (record == null || record.generation != generation) {
+            return false;
+        }
+
+        Object handle = handleOf(item);
+        return handle != null && record.handle.get() == handle;
+    }
+
+    /**
+     * 记录槽位中的物品已在当前代次校验过
+     *
+     * @param player 玩家
+     * @param slot 背包槽位
+     * @param item 槽位中的物品
+     * @param generation 当前模板代次
+     */
+    public void markVerified(Player player, int slot, ItemStack item, int generation) {
+        if (slot < 0 || slot >= PLAYER_SLOTS) {
+            return;
+        }
+
+        Object handle = handleOf(item);
+        if (handle == null) {
+            return;
+        }
+
+        SlotRecord[] verified = slots.computeIfAbsent(player.getUniqueId(), id -> new SlotRecord[PLAYER_SLOTS]);
+        verified[slot] = new SlotRecord(generation, handle);
+    }
+
+    /**
+     * 清除单个玩家的记录
+     *
+     * @param player 玩家
+     */
+    public void clear(Player player) {
+        slots.remove(player.getUniqueId());
+    }
+
+    /**
+     * 清除所有记录
+     */
+    public void clear() {
+        slots.clear();
+    }
+
+    /**
+     * 获取物品背后的服务端物品对象
+     * 事件和背包返回的CraftItemStack直接包装槽位中的服务端对象，
+     * 槽位内容被替换后对象随之改变
+     *
+     * @param item 物品
+     * @return 服务端物品对象，无法获取时返回null
+     */
+    private static Object handleOf(ItemStack item) {
+        if (item == null || handleUnavailable || !item.getClass().getSimpleName().equals("CraftItemStack")) {
+            return null;
+        }
+
+        try {
+            MethodHandle getter = handleGetter;
+            if (getter == null) {
+                Field field = item.getClass().getDeclaredField("handle");
+                field.setAccessible(true);
+                getter = MethodHandles.lookup().unreflectGetter(field);
+                handleGetter = getter;
+            }
+            return getter.invoke(item);
+        } catch (Throwable e) {
+            handleUnavailable = true;
+            return null;
+        }
+    }
+
+    /**
+     * 单个槽位的校验记录，弱引用服务端物品对象，不阻止其被回收
+     */
+    private static final class SlotRecord {
+        private final int generation;
+        private final WeakReference<Object> handle;
+
+        private SlotRecord(int generation, Object handle) {
+            this.generation = generation;
+            this.handle = new WeakReference<>(handle);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package cn.i7mc.mythicItemUpdate.listener;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 玩家更新合并器
+ * 需要检查整个背包的事件（加入、打开和关闭物品栏）只把玩家标记为待更新，
+ * 每tick统一处理一次，同一玩家在一个tick内无论被标记多少次都只执行一次背包更新
+ * 需要立即替换的单个槽位（如点击）不经过这里，由事件本身同步处理
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class PlayerUpdateCoalescer {
+
+    private final MythicItemUpdate plugin;
+    private final Consumer<Player> fullUpdate;
+    private final Set<UUID> dirty;
+    private final LongAdder marks;
+    private final LongAdder passes;
+    private ExecutionBackend.TaskHandle drainTask;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param fullUpdate 检查整个背包的更新，在玩家所属的线程调用
+     */
+    public PlayerUpdateCoalescer(MythicItemUpdate plugin, Consumer<Player> fullUpdate) {
+        this.plugin = plugin;
+        this.fullUpdate = fullUpdate;
+        this.dirty = ConcurrentHashMap.newKeySet();
+        this.marks = new LongAdder();
+        this.passes = new LongAdder();
+    }
+
+    /**
+     * 启动每tick的处理任务
+     */
+    public void start() {
+        if (drainTask == null) {
+            drainTask = plugin.getExecutionBackend().runTimer(this::drain, 1L, 1L);
+        }
+    }
+
+    /**
+     * 停止处理任务并丢弃所有标记
+     */
+    public void stop() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        dirty.clear();
+    }
+
+    /**
+     * 标记玩家的整个背包需要检查
+     *
+     * @param player 玩家
+     */
+    public void markPlayer(Player player) {
+        marks.increment();
+        dirty.add(player.getUniqueId());
+    }
+
+    /**
+     * 丢弃玩家的标记（玩家退出时调用）
+     *
+     * @param player 玩家
+     */
+    public void remove(Player player) {
+        dirty.remove(player.getUniqueId());
+    }
+
+    /**
+     * 获取标记的总次数
+     *
+     * @return 标记次数
+     */
+    public long getMarkCount() {
+        return marks.sum();
+    }
+
+    /**
+     * 获取合并后实际执行的更新次数
+     *
+     * @return 更新次数
+     */
+    public long getPassCount() {
+        return passes.sum();
+    }
+
+    /**
+     * 取出所有被标记的玩家，每个玩家执行一次背包更新
+     */
+    private void drain() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        ExecutionBackend backend = plugin.getExecutionBackend();
+        for (UUID playerId : dirty) {
+            // 先移除再处理，处理期间新的标记会留到下一tick
+            if (!dirty.remove(playerId)) {
+                continue;
+            }
+            Player player = Bukkit.getPlayer(playerId);
+            if (player == null) {
+                continue;
+            }
+
+            passes.increment();
+            if (backend.isRegionized()) {
+                backend.runForEntity(player, () -> fullUpdate.accept(player), null, 0L);
+            } else {
+                fullUpdate.accept(player);
+            }
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class ReloadEventListener extends AbstractEventListener {
     
     /**
      * 监听MythicMobs重载完成事件
+     * 交给重载协调器处理，同一次重载只会执行一次全局更新
      * 
      * @param event MythicMobs重载事件
      */
@@ -51,41 +52,23 @@ public class ReloadEventListener extends AbstractEventListener {
                 return;
             }
             
-            
-            // 检查是否启用了自动更新功能
-            if (!plugin.getConfigManager().isAutoUpdateEnabled()) {
-                return;
-            }
-            
-            // 立即执行更新
-            handleMythicReload();
+            handleMythicReload(event);
         });
     }
     
     /**
      * 处理MythicMobs重载后的物品更新逻辑
+     * 
+     * @param event MythicMobs重载事件
      */
-    private void handleMythicReload() {
+    private void handleMythicReload(MythicReloadedEvent event) {
         try {
-            
-            // 检查MythicMobs是否可用
-            if (!plugin.getItemDetector().isMythicAvailable()) {
-                warning("MythicMobs不可用，无法执行物品更新");
-                return;
-            }
-            
-            // 重载物品检测器
-            if (!plugin.getItemDetector().reload()) {
-                warning("重载物品检测器失败");
+            if (plugin.getBatchUpdateManager() == null) {
+                warning("批量更新管理器未初始化");
                 return;
             }
             
-            // 触发批量更新管理器
-            if (plugin.getBatchUpdateManager() != null) {
-                plugin.getBatchUpdateManager().triggerGlobalUpdate();
-            } else {
-                warning("批量更新管理器未初始化");
-            }
+            plugin.getBatchUpdateManager().getReloadCoordinator().handleReload(event);
 
         } catch (Exception e) {
             handleError("处理MythicMobs重载事件时发生错误", e);
@@ -3,15 +3,25 @@ package cn.i7mc.mythicItemUpdate.listener;
 import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
 import cn.i7mc.mythicItemUpdate.data.MythicItemData;
 import cn.i7mc.mythicItemUpdate.data.PlayerItemData;
+import cn.i7mc.mythicItemUpdate.updater.OfflinePlayerUpdater;
 import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerPickupItemEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 
 /**
  * 物品更新事件处理器
@@ -22,24 +32,41 @@ import org.bukkit.inventory.ItemStack;
  */
 public class UpdateEventHandler extends AbstractEventListener {
     
+    private final PlayerSlotCache slotCache;
+    private final InventoryVersionStamp inventoryStamp;
+    private final PlayerUpdateCoalescer coalescer;
+    private final JoinUpdateQueue joinQueue;
+    
     public UpdateEventHandler(MythicItemUpdate plugin) {
         super(plugin);
+        this.slotCache = new PlayerSlotCache();
+        this.inventoryStamp = new InventoryVersionStamp(plugin);
+        this.coalescer = new PlayerUpdateCoalescer(plugin, this::updatePlayerInventory);
+        this.joinQueue = new JoinUpdateQueue(plugin, coalescer::markPlayer);
     }
     
     @Override
     protected boolean initializeListener() {
+        coalescer.start();
+        joinQueue.start();
         info("物品更新事件处理器初始化成功");
         return true;
     }
     
     @Override
     protected boolean reloadListener() {
+        logStatistics();
+        slotCache.clear();
         info("物品更新事件处理器重载成功");
         return true;
     }
     
     @Override
     protected void shutdownListener() {
+        logStatistics();
+        joinQueue.stop();
+        coalescer.stop();
+        slotCache.clear();
     }
     
     @Override
@@ -47,6 +74,20 @@ public class UpdateEventHandler extends AbstractEventListener {
         return "UpdateEventHandler";
     }
     
+    /**
+     * 监听玩家登录前事件
+     * 允许登录的玩家占用自己的数据文件，离线更新不会在服务器读取数据前后改写该文件
+     * 
+     * @param event 玩家登录前事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        OfflinePlayerUpdater offlineUpdater = getOfflinePlayerUpdater();
+        if (offlineUpdater != null && event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            offlineUpdater.claimPlayer(event.getUniqueId());
+        }
+    }
+    
     /**
      * 监听玩家加入事件
      * 检查并更新玩家背包中的MythicMobs物品
@@ -68,16 +109,14 @@ public class UpdateEventHandler extends AbstractEventListener {
             }
             
             
-            // 延迟执行，确保玩家完全加载
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                updatePlayerInventory(player);
-            }, plugin.getConfigManager().getJoinUpdateDelay());
+            // 按加入顺序排队，延迟后在每tick预算内执行，确保玩家完全加载
+            joinQueue.enqueue(player, plugin.getConfigManager().getJoinUpdateDelay());
         });
     }
     
     /**
      * 监听背包打开事件
-     * 在打开背包时检查并更新物品
+     * 在打开背包时检查并更新物品，玩家自己的背包和末影箱标记到合并器中，本tick结束后统一检查
      * 
      * @param event 背包打开事件
      */
@@ -99,9 +138,41 @@ public class UpdateEventHandler extends AbstractEventListener {
                 return;
             }
             
+            // 连续打开多个物品栏时同一tick内只检查一次玩家背包
+            coalescer.markPlayer(player);
+            
+            // 当前定义下已完整校验过的物品栏直接跳过
+            Inventory inventory = event.getInventory();
+            long version = plugin.getItemDetector().getTemplateCache().getDefinitionsVersion();
+            if (inventoryStamp.isUpToDate(inventory, version)) {
+                return;
+            }
             
-            // 同步执行更新，确保线程安全
-            updateInventoryItems(event.getInventory());
+            // 同步执行更新，确保线程安全；只有所有物品都校验通过时才记录标记
+            if (updateInventoryItems(inventory)) {
+                inventoryStamp.stamp(inventory, version);
+            }
+        });
+    }
+    
+    /**
+     * 监听背包关闭事件
+     * 从容器中取出的物品已进入玩家背包，标记玩家背包在本tick结束后统一检查
+     * 
+     * @param event 背包关闭事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        safeEventHandle("InventoryCloseEvent", () -> {
+            if (!shouldHandleEvent() || !(event.getPlayer() instanceof Player)) {
+                return;
+            }
+            
+            if (!plugin.getConfigManager().isUpdateOnInventoryOpenEnabled()) {
+                return;
+            }
+            
+            coalescer.markPlayer((Player) event.getPlayer());
         });
     }
     
@@ -125,6 +196,11 @@ public class UpdateEventHandler extends AbstractEventListener {
             Player player = (Player) event.getWhoClicked();
             ItemStack clickedItem = event.getCurrentItem();
             
+            // 点击可能把物品放入上方物品栏，其校验标记不再可信
+            if (!event.isCancelled()) {
+                inventoryStamp.clear(event.getView().getTopInventory());
+            }
+            
             // 检查是否启用了点击时更新功能
             if (!plugin.getConfigManager().isUpdateOnClickEnabled()) {
                 return;
@@ -134,55 +210,163 @@ public class UpdateEventHandler extends AbstractEventListener {
                 return;
             }
             
-            // 检查是否为MythicMobs物品
-            if (!plugin.getItemDetector().isMythicItem(clickedItem)) {
+            // 只有玩家自己背包的槽位可以按槽位记录
+            int slot = event.getSlot();
+            boolean cacheable = player.getInventory().equals(event.getClickedInventory());
+            int generation = plugin.getItemDetector().getTemplateCache().getGeneration();
+            if (cacheable && slotCache.isVerified(player, slot, clickedItem, generation)) {
                 return;
             }
             
+            // 检查是否为MythicMobs物品，类型和元数据只解析一次，后续更新直接使用
+            ItemMeta meta = clickedItem.getItemMeta();
+            String internalName = plugin.getItemDetector().resolveMythicType(clickedItem, meta);
+            if (internalName == null) {
+                if (cacheable) {
+                    slotCache.markVerified(player, slot, clickedItem, generation);
+                }
+                return;
+            }
             
-            // 同步检查并更新物品，避免竞态条件
-            updateSingleItem(player, clickedItem, event.getSlot());
+            // 在事件中同步检查并替换，物品离开槽位后就无法再按槽位找到
+            ItemStack verifiedItem = updateSingleItem(player, clickedItem, meta, internalName, slot);
+            if (cacheable && verifiedItem != null) {
+                // 替换后槽位中是新的服务端物品对象，重新读取后再记录
+                slotCache.markVerified(player, slot, player.getInventory().getItem(slot), generation);
+            }
         });
     }
     
     /**
-     * 监听玩家拾取物品事件
-     * 在拾取MythicMobs物品时检查更新
+     * 监听背包拖动事件
+     * 拖动可能把物品放入上方物品栏，清除其校验标记
      * 
-     * @param event 拾取物品事件
+     * @param event 背包拖动事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        safeEventHandle("InventoryDragEvent", () -> inventoryStamp.clear(event.getView().getTopInventory()));
+    }
+    
+    /**
+     * 监听物品栏之间的物品转移（漏斗等）
+     * 目标物品栏的校验标记不再可信
+     * 
+     * @param event 物品转移事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        safeEventHandle("InventoryMoveItemEvent", () -> inventoryStamp.clear(event.getDestination()));
+    }
+    
+    /**
+     * 监听漏斗等方块拾取掉落物
+     * 掉落物进入的物品栏的校验标记不再可信
+     * 
+     * @param event 物品栏拾取物品事件
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        safeEventHandle("InventoryPickupItemEvent", () -> inventoryStamp.clear(event.getInventory()));
+    }
+    
+    /**
+     * 监听玩家退出事件
+     * 将玩家移出加入更新队列，丢弃待更新标记并清除槽位校验记录，
+     * 服务器保存玩家数据后释放数据文件
+     * 
+     * @param event 玩家退出事件
      */
     @EventHandler(priority = EventPriority.MONITOR)
-    public void onPlayerPickupItem(PlayerPickupItemEvent event) {
-        safeEventHandle("PlayerPickupItemEvent", () -> {
-            if (!shouldHandleEvent()) {
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        joinQueue.remove(event.getPlayer());
+        coalescer.remove(event.getPlayer());
+        slotCache.clear(event.getPlayer());
+        
+        OfflinePlayerUpdater offlineUpdater = getOfflinePlayerUpdater();
+        if (offlineUpdater != null) {
+            offlineUpdater.releasePlayer(event.getPlayer().getUniqueId(), true);
+        }
+    }
+    
+    /**
+     * 获取离线玩家数据更新器
+     * 
+     * @return 离线玩家数据更新器，批量更新管理器未初始化时返回null
+     */
+    private OfflinePlayerUpdater getOfflinePlayerUpdater() {
+        return plugin.getBatchUpdateManager() != null
+            ? plugin.getBatchUpdateManager().getOfflinePlayerUpdater() : null;
+    }
+    
+    /**
+     * 获取玩家加入更新队列，可用于查看排队数量和等待时间
+     * 
+     * @return 加入更新队列
+     */
+    public JoinUpdateQueue getJoinUpdateQueue() {
+        return joinQueue;
+    }
+    
+    /**
+     * 获取玩家更新合并器，可用于比较事件标记次数和实际更新次数
+     * 
+     * @return 玩家更新合并器
+     */
+    public PlayerUpdateCoalescer getUpdateCoalescer() {
+        return coalescer;
+    }
+    
+    /**
+     * 监听实体拾取物品事件
+     * 在物品进入玩家背包之前直接替换掉落物实体中的物品，无需再扫描整个背包
+     * 
+     * @param event 拾取物品事件
+     */
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onEntityPickupItem(EntityPickupItemEvent event) {
+        safeEventHandle("EntityPickupItemEvent", () -> {
+            if (!shouldHandleEvent() || !(event.getEntity() instanceof Player)) {
                 return;
             }
             
-            Player player = event.getPlayer();
-            ItemStack item = event.getItem().getItemStack();
-            
             // 检查是否启用了拾取时更新功能
             if (!plugin.getConfigManager().isUpdateOnPickupEnabled()) {
                 return;
             }
             
+            Item itemEntity = event.getItem();
+            ItemStack item = itemEntity.getItemStack();
             if (!Utils.isValidItem(item)) {
                 return;
             }
             
-            // 检查是否为MythicMobs物品
-            if (!plugin.getItemDetector().isMythicItem(item)) {
-                return;
+            // 服务端在事件结束后读取实体中的物品放入背包，替换后玩家拿到的就是新版本
+            ItemStack updatedItem = plugin.getItemDetector().getUpdatedItem(item);
+            if (updatedItem != null && updatedItem != item && !updatedItem.equals(item)) {
+                // 背包放不下时事件中的数量只是能拾取的部分，替换时要加回留在地上的数量，否则剩余物品会丢失
+                ItemStack replacement = updatedItem.clone();
+                replacement.setAmount(item.getAmount() + event.getRemaining());
+                itemEntity.setItemStack(replacement);
             }
-            
-            
-            // 延迟执行，确保物品已进入背包
-            plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                updatePlayerInventory(player);
-            }, 1L);
         });
     }
     
+    /**
+     * 在启用统计日志时输出加入更新队列的排队情况和事件更新的合并情况
+     */
+    private void logStatistics() {
+        if (!plugin.getConfigManager().getConfigValue("logging.log-statistics", true)) {
+            return;
+        }
+        
+        info(String.format("加入更新队列: 已处理 %d 名玩家，平均等待 %dms，最长等待 %dms，排队中 %d 名",
+            joinQueue.getProcessedCount(), joinQueue.getAverageWaitMillis(),
+            joinQueue.getMaxWaitMillis(), joinQueue.getQueueDepth()));
+        info(String.format("玩家更新合并: 标记 %d 次，实际更新 %d 次",
+            coalescer.getMarkCount(), coalescer.getPassCount()));
+    }
+    
     /**
      * 更新玩家背包中的所有物品
      * 
@@ -190,7 +374,7 @@ public class UpdateEventHandler extends AbstractEventListener {
      */
     private void updatePlayerInventory(Player player) {
         try {
-            PlayerItemData playerData = new PlayerItemData(player);
+            PlayerItemData playerData = plugin.getItemDetector().detectPlayerItems(player, null);
             
             if (plugin.getBatchUpdateManager() != null) {
                 plugin.getBatchUpdateManager().updatePlayerItems(playerData);
@@ -205,25 +389,27 @@ public class UpdateEventHandler extends AbstractEventListener {
      * 更新背包中的物品
      * 
      * @param inventory 背包
+     * @return 是否所有物品都已校验并更新到当前版本，有物品验证失败或发生错误时返回false
      */
-    private void updateInventoryItems(org.bukkit.inventory.Inventory inventory) {
+    private boolean updateInventoryItems(Inventory inventory) {
         try {
             ItemStack[] contents = inventory.getContents();
             boolean inventoryChanged = false;
+            boolean clean = true;
             
             for (int i = 0; i < contents.length; i++) {
                 ItemStack item = contents[i];
-                if (Utils.isValidItem(item) && plugin.getItemDetector().isMythicItem(item)) {
-                    if (plugin.getItemDetector().needsUpdate(item)) {
-                        ItemStack updatedItem = plugin.getItemDetector().getUpdatedItem(item);
-                        if (updatedItem != null && !updatedItem.equals(item)) {
-                            // 验证物品在更新过程中没有被修改
-                            ItemStack currentItem = inventory.getItem(i);
-                            if (Utils.isValidItem(currentItem) && currentItem.equals(item)) {
-                                contents[i] = updatedItem;
-                                inventoryChanged = true;
-                            } else {
-                            }
+                if (Utils.isValidItem(item)) {
+                    // 一次解析类型并比较版本，无需更新时返回原物品
+                    ItemStack updatedItem = plugin.getItemDetector().getUpdatedItem(item);
+                    if (updatedItem != null && updatedItem != item && !updatedItem.equals(item)) {
+                        // 验证物品在更新过程中没有被修改
+                        ItemStack currentItem = inventory.getItem(i);
+                        if (Utils.isValidItem(currentItem) && currentItem.equals(item)) {
+                            contents[i] = updatedItem;
+                            inventoryChanged = true;
+                        } else {
+                            clean = false;
                         }
                     }
                 }
@@ -233,8 +419,10 @@ public class UpdateEventHandler extends AbstractEventListener {
             if (inventoryChanged) {
                 inventory.setContents(contents);
             }
+            return clean;
         } catch (Exception e) {
             handleError("更新背包物品失败", e);
+            return false;
         }
     }
     
@@ -243,36 +431,41 @@ public class UpdateEventHandler extends AbstractEventListener {
      * 
      * @param player 玩家
      * @param item 物品
+     * @param meta 物品元数据
+     * @param internalName 物品内部名称
      * @param slot 槽位
+     * @return 校验后槽位中的物品，槽位内容已改变或发生错误时返回null
      */
-    private void updateSingleItem(Player player, ItemStack item, int slot) {
+    private ItemStack updateSingleItem(Player player, ItemStack item, ItemMeta meta, String internalName, int slot) {
         try {
             // 验证玩家是否在线
             if (!player.isOnline()) {
-                return;
+                return null;
             }
             
             // 获取当前槽位的实际物品进行验证
             ItemStack currentItem = player.getInventory().getItem(slot);
             if (!Utils.isValidItem(currentItem) || !currentItem.equals(item)) {
-                return;
+                return null;
             }
             
-            if (plugin.getItemDetector().needsUpdate(item)) {
-                ItemStack updatedItem = plugin.getItemDetector().getUpdatedItem(item);
-                if (updatedItem != null && !updatedItem.equals(item)) {
-                    // 再次验证物品没有被修改
-                    ItemStack revalidateItem = player.getInventory().getItem(slot);
-                    if (Utils.isValidItem(revalidateItem) && revalidateItem.equals(currentItem)) {
-                        // 直接在主线程中更新物品，无需调度
-                        player.getInventory().setItem(slot, updatedItem);
-                        
-                    } else {
-                    }
+            ItemStack updatedItem = plugin.getItemDetector().getUpdatedItem(item, meta, internalName);
+            if (updatedItem != null && updatedItem != item && !updatedItem.equals(item)) {
+                // 再次验证物品没有被修改
+                ItemStack revalidateItem = player.getInventory().getItem(slot);
+                if (Utils.isValidItem(revalidateItem) && revalidateItem.equals(currentItem)) {
+                    // 直接在主线程中更新物品，无需调度
+                    player.getInventory().setItem(slot, updatedItem);
+                    return updatedItem;
+                } else {
+                    return null;
                 }
             }
+            
+            return currentItem;
         } catch (Exception e) {
             handleError("更新单个物品失败", e);
+            return null;
         }
     }
 }
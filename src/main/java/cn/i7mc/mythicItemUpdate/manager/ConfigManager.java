@@ -190,6 +190,26 @@ public class ConfigManager extends AbstractManager {
     public boolean isAutoUpdateEnabled() {
         return getConfigValue("settings.item-update.auto-update", true);
     }
+
+    /**
+     * 获取重载后等待的静默时间，期间再次重载会重新计时
+     *
+     * @return 静默时间（tick），为0时立即更新
+     */
+    public long getReloadQuietPeriod() {
+        Object value = getConfigValue("settings.item-update.reload-quiet-period", 100);
+        return Math.max(0L, convertToLong(value, 100L));
+    }
+
+    /**
+     * 获取从第一次重载到开始更新的最长等待时间
+     *
+     * @return 最长等待时间（tick）
+     */
+    public long getReloadMaxDelay() {
+        Object value = getConfigValue("settings.item-update.reload-max-delay", 1200);
+        return Math.max(0L, convertToLong(value, 1200L));
+    }
     
 
     
@@ -229,6 +249,15 @@ public class ConfigManager extends AbstractManager {
         return getConfigValue("settings.item-update.update-containers", true);
     }
 
+    /**
+     * 检查是否更新离线玩家数据文件中的物品
+     *
+     * @return 是否更新
+     */
+    public boolean isUpdateOfflinePlayersEnabled() {
+        return getConfigValue("settings.item-update.update-offline-players", false);
+    }
+
     // ==================== 事件处理配置 ====================
 
     /**
@@ -277,6 +306,16 @@ public class ConfigManager extends AbstractManager {
         return getConfigValue("events.update-on-pickup", true);
     }
 
+    /**
+     * 检查是否在区块加载时更新容器和掉落物（惰性模式）
+     * 启用后全局更新不再扫描区块
+     *
+     * @return 是否启用
+     */
+    public boolean isUpdateOnChunkLoadEnabled() {
+        return getConfigValue("events.update-on-chunk-load", false);
+    }
+
     /**
      * 检查是否向管理员发送通知
      *
@@ -285,4 +324,125 @@ public class ConfigManager extends AbstractManager {
     public boolean isNotifyAdminsEnabled() {
         return getConfigValue("events.notify-admins", true);
     }
+
+    // ==================== 性能配置 ====================
+
+    /**
+     * 获取全局更新时每tick最多处理的玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int getMaxConcurrentPlayers() {
+        Object value = getConfigValue("performance.max-concurrent-players", 10);
+        return (int) Math.max(1L, convertToLong(value, 10L));
+    }
+
+    /**
+     * 获取全局更新任务的最长持续时间
+     *
+     * @return 超时时间（秒），为0时不限制
+     */
+    public long getPassTimeout() {
+        Object value = getConfigValue("performance.pass-timeout", 300);
+        return Math.max(0L, convertToLong(value, 300L));
+    }
+
+    /**
+     * 获取单个物品更新的最大时间，超过后该物品类型立即被隔离，同时限制重载时生成全部模板的总时间
+     *
+     * @return 最大时间（秒），为0时不限制
+     */
+    public long getItemMaxTime() {
+        Object value = getConfigValue("performance.timeout", 30);
+        return Math.max(0L, convertToLong(value, 30L));
+    }
+
+    /**
+     * 获取单个物品更新的时间预算
+     *
+     * @return 时间预算（毫秒），为0时不限制
+     */
+    public long getItemTimeoutMillis() {
+        Object value = getConfigValue("performance.item-timeout-ms", 50);
+        return Math.max(0L, convertToLong(value, 50L));
+    }
+
+    /**
+     * 获取全局更新每tick可占用的主线程时间
+     *
+     * @return 时间预算（毫秒）
+     */
+    public long getTickBudgetMillis() {
+        Object value = getConfigValue("performance.tick-budget-ms", 5);
+        return Math.max(1L, convertToLong(value, 5L));
+    }
+
+    /**
+     * 获取每tick最多处理的加入玩家数量
+     *
+     * @return 玩家数量
+     */
+    public int getJoinUpdatesPerTick() {
+        Object value = getConfigValue("performance.join-updates-per-tick", 2);
+        return (int) Math.max(1L, convertToLong(value, 2L));
+    }
+
+    /**
+     * 获取流式更新时缓冲区最多保留的物品数量
+     *
+     * @return 物品数量
+     */
+    public int getStreamBufferSize() {
+        Object value = getConfigValue("performance.stream-buffer-size", 256);
+        return (int) Math.max(1L, convertToLong(value, 256L));
+    }
+
+    /**
+     * 检查是否在工作线程中比较玩家物品
+     *
+     * @return 是否启用
+     */
+    public boolean isAsyncComparisonEnabled() {
+        return getConfigValue("performance.async-comparison", true);
+    }
+
+    /**
+     * 获取比较物品使用的工作线程数量
+     *
+     * @return 线程数量
+     */
+    public int getWorkerThreads() {
+        Object value = getConfigValue("performance.worker-threads", 2);
+        return (int) Math.max(1L, convertToLong(value, 2L));
+    }
+
+    /**
+     * 获取区域化调度时每个玩家周围扫描的区块半径
+     *
+     * @return 区块半径
+     */
+    public int getRegionChunkRadius() {
+        Object value = getConfigValue("performance.region-chunk-radius", 4);
+        return (int) Math.max(0L, convertToLong(value, 4L));
+    }
+
+    /**
+     * 获取惰性模式下每tick最多处理的区块数量
+     *
+     * @return 区块数量
+     */
+    public int getChunksPerTick() {
+        Object value = getConfigValue("performance.chunks-per-tick", 4);
+        return (int) Math.max(1L, convertToLong(value, 4L));
+    }
+
+    /**
+     * 获取并行处理离线玩家数据文件的线程数量
+     *
+     * @return 线程数量
+     */
+    public int getOfflineThreads() {
+        Object value = getConfigValue("performance.offline-threads", 2);
+        return (int) Math.max(1L, convertToLong(value, 2L));
+    }
 }
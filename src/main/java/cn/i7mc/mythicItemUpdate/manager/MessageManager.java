@@ -221,6 +221,13 @@ public class MessageManager extends AbstractManager {
         plugin.getLogger().info(ChatColor.stripColor(message));
     }
     
+    public void sendProgressMessage(int current, int total) {
+        Map<String, String> placeholders = createPlaceholders(
+            "current", String.valueOf(current), "total", String.valueOf(total));
+        String message = getMessage("progress.batch-processing", "&e[MythicItemUpdate] 正在处理批次 {current}/{total}...", placeholders);
+        plugin.getLogger().info(ChatColor.stripColor(message));
+    }
+    
     public void sendErrorMessage(String type, String error) {
         Map<String, String> placeholders = createPlaceholders("error", error);
         String message = getMessage("errors." + type, "&c[MythicItemUpdate] 错误: " + error, placeholders);
@@ -6,9 +6,15 @@ import io.lumine.mythic.bukkit.MythicBukkit;
 import io.lumine.mythic.bukkit.adapters.BukkitItemStack;
 import io.lumine.mythic.core.items.MythicItem;
 import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,13 +26,18 @@ import java.util.Optional;
  */
 public abstract class AbstractMythicIntegration extends AbstractManager {
 
+    // MythicMobs写入物品PDC的类型标记
+    private static final NamespacedKey MYTHIC_TYPE_KEY = new NamespacedKey("mythicmobs", "type");
+
     protected MythicBukkit mythicBukkit;
     protected Plugin mythicPlugin;
     protected boolean mythicAvailable;
+    protected final NonMythicItemCache nonMythicCache;
     
     public AbstractMythicIntegration(MythicItemUpdate plugin) {
         super(plugin);
         this.mythicAvailable = false;
+        this.nonMythicCache = new NonMythicItemCache();
     }
     
     @Override
@@ -69,6 +80,8 @@ public abstract class AbstractMythicIntegration extends AbstractManager {
                 return initialize();
             }
             
+            // 物品定义可能变化，之前判定为普通物品的结果不再可信
+            nonMythicCache.invalidate();
             return reloadIntegration();
             
         } catch (Exception e) {
@@ -81,6 +94,7 @@ public abstract class AbstractMythicIntegration extends AbstractManager {
     public void shutdown() {
         try {
             shutdownIntegration();
+            nonMythicCache.invalidate();
             mythicBukkit = null;
             mythicPlugin = null;
             mythicAvailable = false;
@@ -143,15 +157,7 @@ public abstract class AbstractMythicIntegration extends AbstractManager {
      * @return 是否为MythicMobs物品
      */
     public boolean isMythicItem(ItemStack item) {
-        if (!isMythicAvailable() || item == null) {
-            return false;
-        }
-        
-        try {
-            return mythicBukkit.getItemManager().isMythicItem(item);
-        } catch (Exception e) {
-            return false;
-        }
+        return resolveMythicType(item) != null;
     }
     
     /**
@@ -161,17 +167,83 @@ public abstract class AbstractMythicIntegration extends AbstractManager {
      * @return 内部名称，如果不是MythicMobs物品则返回null
      */
     public String getMythicItemInternalName(ItemStack item) {
-        if (!isMythicItem(item)) {
+        return resolveMythicType(item);
+    }
+    
+    /**
+     * 一次性解析物品的MythicMobs类型
+     * 
+     * @param item 物品
+     * @return 内部名称，如果不是MythicMobs物品则返回null
+     */
+    public String resolveMythicType(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) {
+            return null;
+        }
+        
+        return resolveMythicType(item, item.getItemMeta());
+    }
+    
+    /**
+     * 使用已读取的物品元数据解析MythicMobs类型
+     * 优先直接读取PDC中的类型标记，没有标记时先查询否定结果缓存，最后才回退到MythicMobs API
+     * 
+     * @param item 物品
+     * @param meta 物品元数据
+     * @return 内部名称，如果不是MythicMobs物品则返回null
+     */
+    public String resolveMythicType(ItemStack item, ItemMeta meta) {
+        if (!isMythicAvailable() || item == null || meta == null) {
             return null;
         }
         
         try {
-            return mythicBukkit.getItemManager().getMythicTypeFromItem(item);
+            String type = readMythicTypeTag(meta);
+            if (type != null) {
+                return type;
+            }
+            
+            // 普通物品占绝大多数，已判定过的物品标识直接返回
+            long identity = nonMythicCache.identify(item, meta);
+            if (nonMythicCache.contains(identity)) {
+                return null;
+            }
+            
+            // 旧版本生成的物品只有NBT标记，交给API解析
+            type = mythicBukkit.getItemManager().getMythicTypeFromItem(item);
+            if (type == null) {
+                nonMythicCache.remember(identity);
+            }
+            return type;
         } catch (Exception e) {
             return null;
         }
     }
     
+    /**
+     * 只读取PDC中的MythicMobs类型标记，不查询缓存也不调用MythicMobs API，可在任意线程调用
+     * 只有NBT标记的旧版本物品返回null
+     * 
+     * @param meta 物品元数据
+     * @return 内部名称，没有类型标记时返回null
+     */
+    public String readMythicTypeTag(ItemMeta meta) {
+        if (meta == null) {
+            return null;
+        }
+        
+        return meta.getPersistentDataContainer().get(MYTHIC_TYPE_KEY, PersistentDataType.STRING);
+    }
+    
+    /**
+     * 获取非MythicMobs物品的否定结果缓存
+     * 
+     * @return 否定结果缓存
+     */
+    public final NonMythicItemCache getNonMythicCache() {
+        return nonMythicCache;
+    }
+    
     /**
      * 根据内部名称获取MythicMobs物品
      * 
@@ -191,6 +263,22 @@ public abstract class AbstractMythicIntegration extends AbstractManager {
         }
     }
     
+    /**
+     * 获取所有已加载的MythicMobs物品内部名称
+     * 
+     * @return 内部名称列表，如果获取失败则返回空列表
+     */
+    public List<String> getAllMythicItemNames() {
+        return safeMythicCall("获取物品列表", () -> {
+            Collection<MythicItem> items = mythicBukkit.getItemManager().getItems();
+            List<String> names = new ArrayList<>(items.size());
+            for (MythicItem mythicItem : items) {
+                names.add(mythicItem.getInternalName());
+            }
+            return names;
+        }, new ArrayList<>());
+    }
+    
     /**
      * 生成MythicMobs物品
      * 
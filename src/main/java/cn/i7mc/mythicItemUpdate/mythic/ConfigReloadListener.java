@@ -70,25 +70,19 @@ public class ConfigReloadListener extends AbstractMythicIntegration implements L
     
     /**
      * 监听MythicMobs重载事件
+     * 交给重载协调器处理，与其他监听器收到的同一次重载不会重复更新
      * 
      * @param event MythicMobs重载事件
      */
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onMythicReload(MythicReloadedEvent event) {
         try {
-            // 检查是否启用自动更新
-            if (!plugin.getConfigManager().isAutoUpdateEnabled()) {
+            if (plugin.getBatchUpdateManager() == null) {
+                warning("批量更新管理器未初始化，无法执行物品更新");
                 return;
             }
             
-
-            
-            // 立即执行物品更新
-            try {
-                triggerItemUpdate();
-            } catch (Exception e) {
-                handleError("触发物品更新时发生错误", e);
-            }
+            plugin.getBatchUpdateManager().getReloadCoordinator().handleReload(event);
 
         } catch (Exception e) {
             handleError("处理MythicMobs重载事件时发生错误", e);
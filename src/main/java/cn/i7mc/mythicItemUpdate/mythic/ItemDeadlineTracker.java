@@ -0,0 +1,187 @@
+package cn.i7mc.mythicItemUpdate.mythic;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 单个物品更新的时间预算跟踪器
+ * 记录每种物品（内部名称）连续超出时间预算的次数，一次未超时的更新会清零计数，
+ * 连续超时达到上限的物品类型被隔离，之后的更新中直接跳过
+ * 单次耗时超过最大时间（performance.timeout）的物品类型立即被隔离
+ * 模板代次变化（重载）后清空记录，修改过的物品定义重新获得机会
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class ItemDeadlineTracker {
+
+    // 隔离物品类型前允许的连续超时次数
+    private static final int QUARANTINE_STRIKES = 3;
+
+    // 两次超时警告之间的最短间隔，期间的超时只计数
+    private static final long WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final MythicItemUpdate plugin;
+    private final IntSupplier generationSource;
+    private final Map<String, AtomicInteger> strikes;
+    private final Set<String> quarantined;
+    private final AtomicLong lastWarning;
+    private final AtomicInteger suppressedWarnings;
+    private volatile int generation;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param generationSource 当前模板代次
+     */
+    public ItemDeadlineTracker(MythicItemUpdate plugin, IntSupplier generationSource) {
+        this.plugin = plugin;
+        this.generationSource = generationSource;
+        this.strikes = new ConcurrentHashMap<>();
+        this.quarantined = ConcurrentHashMap.newKeySet();
+        this.lastWarning = new AtomicLong(System.nanoTime() - WARNING_INTERVAL_NANOS);
+        this.suppressedWarnings = new AtomicInteger();
+        this.generation = -1;
+    }
+
+    /**
+     * 获取单个物品更新的时间预算
+     *
+     * @return 时间预算（纳秒），为0时不限制
+     */
+    public long getBudgetNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(plugin.getConfigManager().getItemTimeoutMillis());
+    }
+
+    /**
+     * 获取单个物品更新的最大时间，超过后立即隔离
+     *
+     * @return 最大时间（纳秒），为0时不限制
+     */
+    public long getMaxNanos() {
+        return TimeUnit.SECONDS.toNanos(plugin.getConfigManager().getItemMaxTime());
+    }
+
+    /**
+     * 检查物品类型是否已被隔离
+     *
+     * @param internalName 物品内部名称
+     * @return 是否已被隔离
+     */
+    public boolean isQuarantined(String internalName) {
+        checkGeneration();
+        return internalName != null && quarantined.contains(internalName);
+    }
+
+    /**
+     * 记录一次物品更新的耗时
+     *
+     * @param internalName 物品内部名称
+     * @param elapsedNanos 耗时（纳秒）
+     * @return 是否超出时间预算
+     */
+    public boolean record(String internalName, long elapsedNanos) {
+        long budget = getBudgetNanos();
+        long max = getMaxNanos();
+        if ((budget <= 0L && max <= 0L) || internalName == null) {
+            return false;
+        }
+
+        checkGeneration();
+        if (max > 0L && elapsedNanos > max) {
+            quarantine(internalName, String.format("单次更新耗时 %dms，超过最大时间",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+            return true;
+        }
+
+        if (budget <= 0L || elapsedNanos <= budget) {
+            // 未超时，之前的超时不再算作连续
+            strikes.remove(internalName);
+            return false;
+        }
+
+        int count = strikes.computeIfAbsent(internalName, name -> new AtomicInteger()).incrementAndGet();
+        warnRateLimited(String.format("[ItemDeadlineTracker] 物品 %s 更新耗时 %dms，超出时间预算 (%d/%d)",
+            internalName, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), count, QUARANTINE_STRIKES));
+
+        if (count >= QUARANTINE_STRIKES) {
+            quarantine(internalName, "连续多次超出时间预算");
+        }
+        return true;
+    }
+
+    /**
+     * 获取已被隔离的物品类型
+     *
+     * @return 内部名称集合
+     */
+    public Set<String> getQuarantined() {
+        checkGeneration();
+        return Collections.unmodifiableSet(new HashSet<>(quarantined));
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void clear() {
+        strikes.clear();
+        quarantined.clear();
+    }
+
+    /**
+     * 隔离物品类型，每种物品每个代次只提示一次
+     *
+     * @param internalName 物品内部名称
+     * @param reason 隔离原因
+     */
+    private void quarantine(String internalName, String reason) {
+        if (quarantined.add(internalName)) {
+            plugin.getLogger().warning(String.format(
+                "[ItemDeadlineTracker] 物品 %s %s，在物品定义重载前的更新中将被跳过", internalName, reason));
+        }
+    }
+
+    /**
+     * 限制超时警告的频率，间隔内的警告只计数，下一次输出时一并提示
+     *
+     * @param message 警告内容
+     */
+    private void warnRateLimited(String message) {
+        long now = System.nanoTime();
+        long last = lastWarning.get();
+        if (now - last < WARNING_INTERVAL_NANOS || !lastWarning.compareAndSet(last, now)) {
+            suppressedWarnings.incrementAndGet();
+            return;
+        }
+
+        int suppressed = suppressedWarnings.getAndSet(0);
+        plugin.getLogger().warning(suppressed > 0
+            ? String.format("%s，此前另有 %d 次超时未显示", message, suppressed)
+            : message);
+    }
+
+    /**
+     * 模板代次变化后清空记录
+     */
+    private void checkGeneration() {
+        int current = generationSource.getAsInt();
+        if (current != generation) {
+            synchronized (this) {
+                if (current != generation) {
+                    clear();
+                    generation = current;
+                }
+            }
+        }
+    }
+}
@@ -5,19 +5,21 @@ import cn.i7mc.mythicItemUpdate.util.Utils;
 import cn.i7mc.mythicItemUpdate.data.*;
 import cn.i7mc.mythicItemUpdate.data.MythicItemData.ItemLocation;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.World;
 import org.bukkit.block.BlockState;
-import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * MythicMobs物品检测器
@@ -28,23 +30,39 @@ import java.util.Map;
  */
 public class ItemDetector extends AbstractMythicIntegration {
     
+    private final ItemTemplateCache templateCache;
+    
     public ItemDetector(MythicItemUpdate plugin) {
         super(plugin);
+        this.templateCache = new ItemTemplateCache(this);
     }
     
     @Override
     protected boolean initializeIntegration() {
+        // 构建首代模板指纹，作为之后重载比较的基准
+        templateCache.rebuild(getAllMythicItemNames());
         info("物品检测器初始化成功");
         return true;
     }
     
     @Override
     protected boolean reloadIntegration() {
+        // MythicMobs重载后旧模板全部失效，重新生成并比较指纹
+        templateCache.invalidate();
+        Set<String> changed = templateCache.rebuild(getAllMythicItemNames());
+        if (changed != null) {
+            info(String.format("物品定义比较完成，%d 个物品发生变化", changed.size()));
+        }
+        if (plugin.getConfigManager().getConfigValue("logging.log-statistics", true)) {
+            info(String.format("普通物品缓存命中 %d 次，未命中 %d 次 (命中率 %.1f%%)",
+                nonMythicCache.getHits(), nonMythicCache.getMisses(), nonMythicCache.getHitRate() * 100));
+        }
         return true;
     }
     
     @Override
     protected void shutdownIntegration() {
+        templateCache.invalidate();
     }
     
     @Override
@@ -58,23 +76,34 @@ public class ItemDetector extends AbstractMythicIntegration {
      * @return 检测结果
      */
     public DetectionResult detectAllMythicItems() {
+        return detectAllMythicItems(null);
+    }
+
+    /**
+     * 检测指定内部名称的MythicMobs物品
+     * 会复制并保留所有检测到的物品，仅用于预览报告；实际更新使用{@link #streamAllMythicItems}
+     *
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 检测结果
+     */
+    public DetectionResult detectAllMythicItems(Set<String> internalNames) {
         DetectionResult result = new DetectionResult();
 
         try {
             // 检测玩家物品
             if (plugin.getConfigManager().isUpdateInventoryEnabled() ||
                 plugin.getConfigManager().isUpdateEnderChestEnabled()) {
-                detectPlayerItems(result);
+                detectPlayerItems(result, internalNames);
             }
 
             // 检测掉落物品
             if (plugin.getConfigManager().isUpdateDroppedItemsEnabled()) {
-                detectDroppedItems(result);
+                detectDroppedItems(result, internalNames);
             }
 
             // 检测容器物品
             if (plugin.getConfigManager().isUpdateContainersEnabled()) {
-                detectContainerItems(result);
+                detectContainerItems(result, internalNames);
             }
 
         } catch (Exception e) {
@@ -85,27 +114,62 @@ public class ItemDetector extends AbstractMythicIntegration {
         return result;
     }
 
+    /**
+     * 流式检测指定内部名称的MythicMobs物品
+     * 每检测完一个玩家、一个掉落物品或一个容器就立即交给接收方，
+     * 不在内存中累积完整的检测结果，由接收方决定缓冲和写回的时机
+     *
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @param sink 检测结果接收方
+     */
+    public void streamAllMythicItems(Set<String> internalNames, DetectionSink sink) throws Exception {
+        // 检测玩家物品
+        if (plugin.getConfigManager().isUpdateInventoryEnabled() ||
+            plugin.getConfigManager().isUpdateEnderChestEnabled()) {
+            for (Player player : Utils.getOnlinePlayers()) {
+                PlayerItemData playerData = detectPlayerItems(player, internalNames);
+                if (playerData.getTotalItemCount() > 0) {
+                    sink.acceptPlayer(playerData);
+                }
+            }
+        }
+
+        // 检测掉落物品
+        if (plugin.getConfigManager().isUpdateDroppedItemsEnabled()) {
+            for (World world : Bukkit.getWorlds()) {
+                for (Item itemEntity : world.getEntitiesByClass(Item.class)) {
+                    DroppedItemData droppedData = detectDroppedItem(itemEntity, internalNames);
+                    if (droppedData != null) {
+                        sink.acceptDroppedItem(droppedData);
+                    }
+                }
+            }
+        }
+
+        // 检测容器物品，逐个区块进行
+        if (plugin.getConfigManager().isUpdateContainersEnabled()) {
+            for (World world : Bukkit.getWorlds()) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    for (ContainerItemData containerData : detectContainerItems(chunk, internalNames)) {
+                        sink.acceptContainer(containerData);
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * 检测玩家物品
      * 
      * @param result 检测结果
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
      */
-    private void detectPlayerItems(DetectionResult result) {
+    private void detectPlayerItems(DetectionResult result, Set<String> internalNames) {
         List<Player> players = Utils.getOnlinePlayers();
         
         for (Player player : players) {
             try {
-                PlayerItemData playerData = new PlayerItemData(player.getName());
-                
-                // 检测背包物品
-                if (plugin.getConfigManager().isUpdateInventoryEnabled()) {
-                    detectInventoryItems(player.getInventory(), playerData.getInventoryItems());
-                }
-                
-                // 检测末影箱物品
-                if (plugin.getConfigManager().isUpdateEnderChestEnabled()) {
-                    detectInventoryItems(player.getEnderChest(), playerData.getEnderChestItems());
-                }
+                PlayerItemData playerData = detectPlayerItems(player, internalNames);
                 
                 if (playerData.getTotalItemCount() > 0) {
                     result.addPlayerData(playerData);
@@ -116,26 +180,52 @@ public class ItemDetector extends AbstractMythicIntegration {
         }
     }
     
+    /**
+     * 检测单个玩家的物品
+     * 
+     * @param player 玩家
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 玩家物品数据
+     */
+    public PlayerItemData detectPlayerItems(Player player, Set<String> internalNames) {
+        PlayerItemData playerData = new PlayerItemData(player);
+        
+        // 检测背包物品
+        if (plugin.getConfigManager().isUpdateInventoryEnabled()) {
+            detectInventoryItems(player.getInventory(), playerData.getInventoryItems(), internalNames, ItemLocation.INVENTORY);
+        }
+        
+        // 检测末影箱物品
+        if (plugin.getConfigManager().isUpdateEnderChestEnabled()) {
+            detectInventoryItems(player.getEnderChest(), playerData.getEnderChestItems(), internalNames, ItemLocation.ENDERCHEST);
+        }
+        
+        return playerData;
+    }
+    
     /**
      * 检测背包中的物品
      * 
      * @param inventory 背包
      * @param itemList 物品列表
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @param location 物品位置类型
      */
-    private void detectInventoryItems(Inventory inventory, List<MythicItemData> itemList) {
+    private void detectInventoryItems(Inventory inventory, List<MythicItemData> itemList, Set<String> internalNames,
+                                      ItemLocation location) {
         ItemStack[] contents = inventory.getContents();
         
         for (int slot = 0; slot < contents.length; slot++) {
             ItemStack item = contents[slot];
             
-            if (Utils.isValidItem(item) && isMythicItem(item)) {
-                String internalName = getMythicItemInternalName(item);
-                if (internalName != null) {
+            if (Utils.isValidItem(item)) {
+                String internalName = resolveMythicType(item);
+                if (matchesFilter(internalName, internalNames)) {
                     MythicItemData itemData = new MythicItemData(
                         internalName,
                         item.clone(),
                         slot,
-                        ItemLocation.INVENTORY
+                        location
                     );
                     itemList.add(itemData);
                 }
@@ -147,65 +237,147 @@ public class ItemDetector extends AbstractMythicIntegration {
      * 检测掉落物品
      * 
      * @param result 检测结果
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
      */
-    private void detectDroppedItems(DetectionResult result) {
+    private void detectDroppedItems(DetectionResult result, Set<String> internalNames) {
         for (World world : Bukkit.getWorlds()) {
             try {
-                for (Entity entity : world.getEntities()) {
-                    if (entity instanceof Item) {
-                        Item itemEntity = (Item) entity;
-                        ItemStack item = itemEntity.getItemStack();
-                        
-                        if (Utils.isValidItem(item) && isMythicItem(item)) {
-                            String internalName = getMythicItemInternalName(item);
-                            if (internalName != null) {
-                                DroppedItemData droppedData = new DroppedItemData(
-                                    internalName,
-                                    item.clone(),
-                                    itemEntity.getUniqueId(),
-                                    itemEntity.getLocation().clone()
-                                );
-                                result.addDroppedItem(droppedData);
-                            }
-                        }
-                    }
+                for (DroppedItemData droppedData : detectDroppedItems(world.getEntitiesByClass(Item.class), internalNames)) {
+                    result.addDroppedItem(droppedData);
                 }
             } catch (Exception e) {
             }
         }
     }
     
+    /**
+     * 检测一组掉落物品实体
+     * 
+     * @param itemEntities 掉落物品实体
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 掉落物品数据列表
+     */
+    public List<DroppedItemData> detectDroppedItems(Collection<Item> itemEntities, Set<String> internalNames) {
+        List<DroppedItemData> droppedItems = new ArrayList<>();
+        
+        for (Item itemEntity : itemEntities) {
+            DroppedItemData droppedData = detectDroppedItem(itemEntity, internalNames);
+            if (droppedData != null) {
+                droppedItems.add(droppedData);
+            }
+        }
+        
+        return droppedItems;
+    }
+    
+    /**
+     * 检测单个掉落物品实体
+     * 
+     * @param itemEntity 掉落物品实体
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 掉落物品数据，不是需要检测的MythicMobs物品时返回null
+     */
+    private DroppedItemData detectDroppedItem(Item itemEntity, Set<String> internalNames) {
+        if (!itemEntity.isValid()) {
+            return null;
+        }
+        
+        ItemStack item = itemEntity.getItemStack();
+        if (!Utils.isValidItem(item)) {
+            return null;
+        }
+        
+        String internalName = resolveMythicType(item);
+        if (!matchesFilter(internalName, internalNames)) {
+            return null;
+        }
+        
+        return new DroppedItemData(
+            internalName,
+            item.clone(),
+            itemEntity.getUniqueId(),
+            itemEntity.getLocation().clone()
+        );
+    }
+    
     /**
      * 检测容器物品
      * 
      * @param result 检测结果
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
      */
-    private void detectContainerItems(DetectionResult result) {
+    private void detectContainerItems(DetectionResult result, Set<String> internalNames) {
         for (World world : Bukkit.getWorlds()) {
             try {
-                for (BlockState blockState : world.getLoadedChunks()[0].getTileEntities()) {
-                    if (blockState instanceof InventoryHolder) {
-                        InventoryHolder holder = (InventoryHolder) blockState;
-                        Inventory inventory = holder.getInventory();
-                        
-                        List<MythicItemData> containerItems = new ArrayList<>();
-                        detectInventoryItems(inventory, containerItems);
-                        
-                        if (!containerItems.isEmpty()) {
-                            ContainerItemData containerData = new ContainerItemData(
-                                blockState.getLocation().clone(),
-                                blockState.getType().name(),
-                                containerItems
-                            );
-                            result.addContainerData(containerData);
-                        }
-                    }
+                for (ContainerItemData containerData : detectContainerItems(world, internalNames)) {
+                    result.addContainerData(containerData);
                 }
             } catch (Exception e) {
             }
         }
     }
     
+    /**
+     * 检测单个世界中的容器物品
+     * 
+     * @param world 世界
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 容器数据列表
+     */
+    public List<ContainerItemData> detectContainerItems(World world, Set<String> internalNames) {
+        List<ContainerItemData> containers = new ArrayList<>();
+        
+        for (Chunk chunk : world.getLoadedChunks()) {
+            containers.addAll(detectContainerItems(chunk, internalNames));
+        }
+        
+        return containers;
+    }
+    
+    /**
+     * 检测单个区块中的容器物品
+     * 直接读取方块实体，不复制完整的方块状态快照
+     * 
+     * @param chunk 区块
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 容器数据列表
+     */
+    public List<ContainerItemData> detectContainerItems(Chunk chunk, Set<String> internalNames) {
+        List<ContainerItemData> containers = new ArrayList<>();
+        
+        for (BlockState blockState : chunk.getTileEntities(false)) {
+            Inventory inventory = Utils.getBlockInventory(blockState);
+            if (inventory == null) {
+                continue;
+            }
+            
+            List<MythicItemData> containerItems = new ArrayList<>();
+            detectInventoryItems(inventory, containerItems, internalNames, ItemLocation.CONTAINER);
+            
+            if (!containerItems.isEmpty()) {
+                ContainerItemData containerData = new ContainerItemData(
+                    blockState.getLocation().clone(),
+                    blockState.getType().name(),
+                    containerItems
+                );
+                containers.add(containerData);
+            }
+        }
+        
+        return containers;
+    }
+    
+    /**
+     * 检查内部名称是否在检测范围内
+     * 
+     * @param internalName 内部名称
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 是否需要检测
+     */
+    private boolean matchesFilter(String internalName, Set<String> internalNames) {
+        return internalName != null && (internalNames == null || internalNames.contains(internalName));
+    }
+    
     /**
      * 检测单个物品是否需要更新
      * 
@@ -213,23 +385,45 @@ public class ItemDetector extends AbstractMythicIntegration {
      * @return 是否需要更新
      */
     public boolean needsUpdate(ItemStack item) {
-        if (!Utils.isValidItem(item) || !isMythicItem(item)) {
+        if (!Utils.isValidItem(item) || !item.hasItemMeta()) {
             return false;
         }
         
-        String internalName = getMythicItemInternalName(item);
-        if (internalName == null) {
-            return false;
-        }
-        
-        // 生成新的物品进行比较
-        ItemStack newItem = generateMythicItem(internalName, item.getAmount());
-        if (newItem == null) {
-            return false;
+        // 类型和版本指纹从同一份元数据中读取
+        ItemMeta meta = item.getItemMeta();
+        ItemTemplateCache.TemplateEntry entry = templateCache.getEntry(resolveMythicType(item, meta));
+        return entry != null && isOutdated(item, meta, entry);
+    }
+    
+    /**
+     * 将物品与模板条目比较，判断是否过期
+     * 不调用MythicMobs API，可在异步线程中对物品副本调用
+     * 
+     * @param item 物品
+     * @param entry 模板条目
+     * @return 是否过期
+     */
+    public boolean isOutdated(ItemStack item, ItemTemplateCache.TemplateEntry entry) {
+        return isOutdated(item, item.getItemMeta(), entry);
+    }
+    
+    /**
+     * 使用已读取的物品元数据与模板条目比较，判断是否过期
+     * 
+     * @param item 物品
+     * @param meta 物品元数据
+     * @param entry 模板条目
+     * @return 是否过期
+     */
+    public boolean isOutdated(ItemStack item, ItemMeta meta, ItemTemplateCache.TemplateEntry entry) {
+        // 已由本插件写出的物品只需比较版本指纹
+        Long version = templateCache.readVersion(meta);
+        if (version != null) {
+            return version != entry.getVersion();
         }
-        
-        // 比较物品是否有差异
-        return !item.isSimilar(newItem);
+
+        // 未标记的物品与原始模板比较（isSimilar不比较数量，无需复制）
+        return !item.isSimilar(entry.getTemplate());
     }
     
     /**
@@ -239,17 +433,62 @@ public class ItemDetector extends AbstractMythicIntegration {
      * @return 更新后的物品，如果无需更新则返回原物品
      */
     public ItemStack getUpdatedItem(ItemStack item) {
-        if (!needsUpdate(item)) {
+        if (!Utils.isValidItem(item) || !item.hasItemMeta()) {
             return item;
         }
         
-        String internalName = getMythicItemInternalName(item);
-        if (internalName == null) {
+        ItemMeta meta = item.getItemMeta();
+        return getUpdatedItem(item, meta, resolveMythicType(item, meta));
+    }
+    
+    /**
+     * 使用已解析的类型和元数据获取物品的更新版本，不再重复解析
+     * 
+     * @param item 原物品
+     * @param meta 物品元数据
+     * @param internalName 物品内部名称
+     * @return 更新后的物品，如果无需更新则返回原物品
+     */
+    public ItemStack getUpdatedItem(ItemStack item, ItemMeta meta, String internalName) {
+        ItemTemplateCache.TemplateEntry entry = templateCache.getEntry(internalName);
+        if (entry == null || !isOutdated(item, meta, entry)) {
             return item;
         }
         
-        ItemStack newItem = generateMythicItem(internalName, item.getAmount());
-        return newItem != null ? newItem : item;
+        return createReplacement(item, meta, entry);
+    }
+    
+    /**
+     * 为过期的物品生成替换物品
+     * 物品来自上一代模板时在副本上打补丁，保留耐久、附魔等物品自身的状态；
+     * 否则复制带版本指纹的新模板并保留数量
+     * 
+     * @param item 过期的物品
+     * @param meta 物品元数据
+     * @param entry 当前模板条目
+     * @return 替换物品
+     */
+    public ItemStack createReplacement(ItemStack item, ItemMeta meta, ItemTemplateCache.TemplateEntry entry) {
+        MetaPatch patch = entry.getPatch();
+        if (patch != null && patch.appliesTo(item, templateCache.readVersion(meta))) {
+            ItemStack patched = item.clone();
+            if (patch.applyTo(patched)) {
+                return patched;
+            }
+        }
+        
+        ItemStack newItem = entry.getStampedTemplate().clone();
+        newItem.setAmount(item.getAmount());
+        return newItem;
+    }
+    
+    /**
+     * 获取物品模板缓存
+     *
+     * @return 模板缓存
+     */
+    public ItemTemplateCache getTemplateCache() {
+        return templateCache;
     }
     
     /**
@@ -262,14 +501,23 @@ public class ItemDetector extends AbstractMythicIntegration {
         Map<ItemStack, ItemStack> updates = new HashMap<>();
         
         for (ItemStack item : items) {
-            if (needsUpdate(item)) {
-                ItemStack updatedItem = getUpdatedItem(item);
-                if (updatedItem != item) {
-                    updates.put(item, updatedItem);
-                }
+            ItemStack updatedItem = getUpdatedItem(item);
+            if (updatedItem != item) {
+                updates.put(item, updatedItem);
             }
         }
         
         return updates;
     }
+
+    /**
+     * 流式检测结果接收方
+     */
+    public interface DetectionSink {
+        void acceptPlayer(PlayerItemData playerData) throws Exception;
+
+        void acceptDroppedItem(DroppedItemData droppedData) throws Exception;
+
+        void acceptContainer(ContainerItemData containerData) throws Exception;
+    }
 }
@@ -0,0 +1,383 @@
+package cn.i7mc.mythicItemUpdate.mythic;
+
+import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.NamespacedKey;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MythicMobs物品模板缓存
+ * 按内部名称缓存生成的物品模板，每个重载代次内每种物品只生成一次
+ * 每个模板附带版本指纹，写出的物品会在PDC中记录该指纹
+ * 重载后通过比较前后两代的指纹得出发生变化的物品定义
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class ItemTemplateCache {
+
+    private final AbstractMythicIntegration integration;
+    private final NamespacedKey versionKey;
+    private final ItemDeadlineTracker deadlines;
+    private final AtomicInteger generation;
+    private volatile Map<String, TemplateEntry> templates;
+    private volatile Map<String, TemplateEntry> fingerprints;
+    private volatile Set<String> changedNames;
+    private volatile long definitionsVersion;
+
+    public ItemTemplateCache(AbstractMythicIntegration integration) {
+        this.integration = integration;
+        this.versionKey = new NamespacedKey(integration.getPlugin(), "template_version");
+        this.generation = new AtomicInteger(0);
+        this.deadlines = new ItemDeadlineTracker(integration.getPlugin(), generation::get);
+        this.templates = new ConcurrentHashMap<>();
+        this.fingerprints = null;
+        this.changedNames = null;
+        this.definitionsVersion = 0L;
+    }
+
+    /**
+     * 获取指定数量的物品模板副本（已写入版本指纹）
+     *
+     * @param internalName 内部名称
+     * @param amount 数量
+     * @return 模板副本，如果无法生成则返回null
+     */
+    public ItemStack getTemplate(String internalName, int amount) {
+        TemplateEntry entry = getEntry(internalName);
+        if (entry == null) {
+            return null;
+        }
+
+        ItemStack copy = entry.getStampedTemplate().clone();
+        copy.setAmount(amount);
+        return copy;
+    }
+
+    /**
+     * 获取模板条目，缓存未命中时生成
+     *
+     * @param internalName 内部名称
+     * @return 模板条目，如果无法生成则返回null
+     */
+    public TemplateEntry getEntry(String internalName) {
+        if (internalName == null) {
+            return null;
+        }
+
+        Map<String, TemplateEntry> current = templates;
+        TemplateEntry entry = current.get(internalName);
+        if (entry != null) {
+            return entry;
+        }
+
+        entry = generateEntry(internalName);
+        if (entry == null) {
+            return null;
+        }
+
+        TemplateEntry existing = current.putIfAbsent(internalName, entry);
+        return existing != null ? existing : entry;
+    }
+
+    /**
+     * 获取已缓存的模板条目，不会触发生成，可在异步线程中调用
+     *
+     * @param internalName 内部名称
+     * @return 模板条目，未缓存时返回null
+     */
+    public TemplateEntry peekEntry(String internalName) {
+        return internalName != null ? templates.get(internalName) : null;
+    }
+
+    /**
+     * 读取物品PDC中的版本指纹
+     *
+     * @param item 物品
+     * @return 版本指纹，如果物品未被标记则返回null
+     */
+    public Long readVersion(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) {
+            return null;
+        }
+
+        return readVersion(item.getItemMeta());
+    }
+
+    /**
+     * 从已读取的物品元数据中读取版本指纹
+     *
+     * @param meta 物品元数据
+     * @return 版本指纹，如果物品未被标记则返回null
+     */
+    public Long readVersion(ItemMeta meta) {
+        return meta != null ? meta.getPersistentDataContainer().get(versionKey, PersistentDataType.LONG) : null;
+    }
+
+    /**
+     * 清空缓存并进入新的重载代次
+     * 换用新的映射而不是清空旧映射，上一代的模板保留为下一次构建比较用的指纹
+     *
+     * @return 新的代次
+     */
+    public int invalidate() {
+        templates = new ConcurrentHashMap<>();
+        return generation.incrementAndGet();
+    }
+
+    /**
+     * 为所有物品定义注册ID并生成模板，再与上一代指纹比较得出变化集合
+     * 没有上一代指纹（如首次构建）时变化集合未知，视为全部变化
+     * 每个模板的生成时间计入时间预算跟踪器，超过最大时间的物品类型被隔离；
+     * 生成总时间超过最大时间后停止预先生成，其余模板在使用时再生成，并视为发生变化
+     *
+     * @param internalNames 当前所有物品内部名称
+     * @return 发生变化的内部名称集合，未知时返回null
+     */
+    public Set<String> rebuild(Collection<String> internalNames) {
+        Map<String, TemplateEntry> current = new ConcurrentHashMap<>();
+        templates = current;
+
+        Set<String> skipped = new HashSet<>();
+        long maxNanos = deadlines.getMaxNanos();
+        long rebuildStart = System.nanoTime();
+        for (String internalName : internalNames) {
+            if (internalName == null) {
+                continue;
+            }
+            if (deadlines.isQuarantined(internalName)
+                || (maxNanos > 0L && System.nanoTime() - rebuildStart > maxNanos)) {
+                skipped.add(internalName);
+                continue;
+            }
+
+            long startNanos = System.nanoTime();
+            getEntry(internalName);
+            deadlines.record(internalName, System.nanoTime() - startNanos);
+        }
+
+        if (!skipped.isEmpty()) {
+            integration.getPlugin().getLogger().warning(String.format(
+                "[ItemTemplateCache] 生成物品模板超过最大时间，%d 个模板推迟到使用时生成", skipped.size()));
+        }
+
+        // 无法获取任何模板时保留上一代指纹，避免误判为无变化
+        if (current.isEmpty()) {
+            changedNames = null;
+            return null;
+        }
+
+        Map<String, TemplateEntry> previous = fingerprints;
+        Set<String> changed = null;
+        if (previous != null) {
+            // 未预先生成的模板无法比较，保守地视为发生变化
+            changed = new HashSet<>(skipped);
+            for (Map.Entry<String, TemplateEntry> generated : current.entrySet()) {
+                TemplateEntry entry = generated.getValue();
+                TemplateEntry before = previous.get(generated.getKey());
+                if (before == null || before.getVersion() != entry.getVersion()) {
+                    changed.add(generated.getKey());
+                    if (before != null) {
+                        // 每个变化的定义只计算一次补丁，之后直接作用于旧版本的物品
+                        entry.setPatch(MetaPatch.diff(before, entry, versionKey));
+                    }
+                }
+            }
+            changed = Collections.unmodifiableSet(changed);
+        }
+
+        fingerprints = current;
+        changedNames = changed;
+        // 有模板未预先生成时组合指纹不完整，混入构建时间使其不与任何已记录的指纹相同
+        long combined = combine(current);
+        definitionsVersion = skipped.isEmpty() ? combined : combined ^ System.nanoTime();
+        return changed;
+    }
+
+    /**
+     * 检查物品定义在最近一次重载中是否发生变化
+     *
+     * @param internalName 内部名称
+     * @return 是否发生变化（变化集合未知时始终返回true）
+     */
+    public boolean isChanged(String internalName) {
+        Set<String> changed = changedNames;
+        return changed == null || changed.contains(internalName);
+    }
+
+    /**
+     * 检查最近一次重载是否有物品定义发生变化
+     *
+     * @return 是否有变化（变化集合未知时始终返回true）
+     */
+    public boolean hasChanges() {
+        Set<String> changed = changedNames;
+        return changed == null || !changed.isEmpty();
+    }
+
+    /**
+     * 获取最近一次重载中发生变化的物品内部名称
+     *
+     * @return 变化集合，未知时返回null
+     */
+    public Set<String> getChangedNames() {
+        return changedNames;
+    }
+
+    /**
+     * 获取全部物品定义的组合指纹
+     * 只取决于物品定义本身，服务器重启后保持不变，可持久化到区块等数据中
+     *
+     * @return 组合指纹，尚未成功构建时返回0
+     */
+    public long getDefinitionsVersion() {
+        return definitionsVersion;
+    }
+
+    /**
+     * 获取当前代次
+     *
+     * @return 当前代次
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 获取已缓存的模板数量
+     *
+     * @return 模板数量
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * 获取模板生成和物品更新共用的时间预算跟踪器
+     *
+     * @return 时间预算跟踪器
+     */
+    public ItemDeadlineTracker getDeadlineTracker() {
+        return deadlines;
+    }
+
+    /**
+     * 获取版本指纹的PDC键
+     *
+     * @return PDC键
+     */
+    public NamespacedKey getVersionKey() {
+        return versionKey;
+    }
+
+    /**
+     * 按内部名称排序后合并所有模板指纹
+     *
+     * @param current 当前代次的模板
+     * @return 组合指纹
+     */
+    private long combine(Map<String, TemplateEntry> current) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, TemplateEntry> entry : new TreeMap<>(current).entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue().getVersion()).append(';');
+        }
+        return Utils.hash64(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 通过MythicMobs生成模板并创建条目
+     *
+     * @param internalName 内部名称
+     * @return 模板条目，如果无法生成则返回null
+     */
+    private TemplateEntry generateEntry(String internalName) {
+        ItemStack template = integration.generateMythicItem(internalName, 1);
+        return template != null ? createEntry(template) : null;
+    }
+
+    /**
+     * 为新生成的模板计算指纹并创建带标记的副本
+     *
+     * @param template 原始模板
+     * @return 模板条目
+     */
+    private TemplateEntry createEntry(ItemStack template) {
+        long version = Utils.hash64(template.serializeAsBytes());
+
+        ItemStack stamped = template.clone();
+        ItemMeta meta = stamped.getItemMeta();
+        if (meta != null) {
+            meta.getPersistentDataContainer().set(versionKey, PersistentDataType.LONG, version);
+            stamped.setItemMeta(meta);
+        }
+
+        return new TemplateEntry(template, stamped, version);
+    }
+
+    /**
+     * 模板条目
+     */
+    public static class TemplateEntry {
+        private final ItemStack template;
+        private final ItemStack stampedTemplate;
+        private final long version;
+        private volatile MetaPatch patch;
+
+        public TemplateEntry(ItemStack template, ItemStack stampedTemplate, long version) {
+            this.template = template;
+            this.stampedTemplate = stampedTemplate;
+            this.version = version;
+        }
+
+        /**
+         * 获取从上一代模板升级到本模板的补丁
+         *
+         * @return 补丁，上一代模板不存在或无法用补丁表达时返回null
+         */
+        public MetaPatch getPatch() {
+            return patch;
+        }
+
+        void setPatch(MetaPatch patch) {
+            this.patch = patch;
+        }
+
+        /**
+         * 获取MythicMobs生成的原始模板（调用方不得修改）
+         *
+         * @return 原始模板
+         */
+        public ItemStack getTemplate() {
+            return template;
+        }
+
+        /**
+         * 获取写入了版本指纹的模板（调用方不得修改）
+         *
+         * @return 带标记的模板
+         */
+        public ItemStack getStampedTemplate() {
+            return stampedTemplate;
+        }
+
+        /**
+         * 获取模板版本指纹
+         *
+         * @return 版本指纹
+         */
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package cn.i7mc.mythicItemUpdate.mythic;
+
+import com.google.common.collect.Multimap;
+import net.kyori.adventure.text.Component;
+import org.bukkit.NamespacedKey;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeModifier;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 物品元数据补丁
+ * 重载后为每个发生变化的物品定义计算一次新旧模板之间的差异（显示名称、描述、属性修饰符、
+ * 自定义模型数据和PDC），直接修改已有物品的元数据，而不是用新模板替换整个物品，
+ * 物品自身的耐久、附魔等状态得以保留
+ * 只有当补丁作用于旧模板后与新模板完全一致时才会生成补丁，否则仍使用整体替换
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public final class MetaPatch {
+
+    private final ItemStack fromTemplate;
+    private final long fromVersion;
+    private final long toVersion;
+    private final NamespacedKey versionKey;
+
+    private final boolean displayNameChanged;
+    private final Component displayName;
+    private final boolean loreChanged;
+    private final List<Component> lore;
+    private final boolean attributesChanged;
+    private final Multimap<Attribute, AttributeModifier> attributes;
+    private final boolean customModelDataChanged;
+    private final Integer customModelData;
+    private final Set<NamespacedKey> removedKeys;
+    private final byte[] dataPatch;
+
+    private MetaPatch(ItemStack fromTemplate, long fromVersion, long toVersion, NamespacedKey versionKey,
+                      ItemMeta oldMeta, ItemMeta newMeta) throws Exception {
+        this.fromTemplate = fromTemplate;
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.versionKey = versionKey;
+
+        Component newName = newMeta.hasDisplayName() ? newMeta.displayName() : null;
+        Component oldName = oldMeta.hasDisplayName() ? oldMeta.displayName() : null;
+        this.displayNameChanged = !Objects.equals(oldName, newName);
+        this.displayName = newName;
+
+        List<Component> newLore = newMeta.hasLore() ? newMeta.lore() : null;
+        List<Component> oldLore = oldMeta.hasLore() ? oldMeta.lore() : null;
+        this.loreChanged = !Objects.equals(oldLore, newLore);
+        this.lore = newLore;
+
+        Multimap<Attribute, AttributeModifier> newAttributes = newMeta.hasAttributeModifiers()
+            ? newMeta.getAttributeModifiers() : null;
+        Multimap<Attribute, AttributeModifier> oldAttributes = oldMeta.hasAttributeModifiers()
+            ? oldMeta.getAttributeModifiers() : null;
+        this.attributesChanged = !Objects.equals(oldAttributes, newAttributes);
+        this.attributes = newAttributes;
+
+        Integer newModelData = newMeta.hasCustomModelData() ? newMeta.getCustomModelData() : null;
+        Integer oldModelData = oldMeta.hasCustomModelData() ? oldMeta.getCustomModelData() : null;
+        this.customModelDataChanged = !Objects.equals(oldModelData, newModelData);
+        this.customModelData = newModelData;
+
+        // PDC值的类型未知，整体序列化后比较；有变化时删除旧模板独有的键，再合并新模板的全部键
+        PersistentDataContainer oldData = oldMeta.getPersistentDataContainer();
+        PersistentDataContainer newData = newMeta.getPersistentDataContainer();
+        byte[] newBytes = newData.serializeToBytes();
+        if (Arrays.equals(oldData.serializeToBytes(), newBytes)) {
+            this.removedKeys = null;
+            this.dataPatch = null;
+        } else {
+            Set<NamespacedKey> removed = new HashSet<>(oldData.getKeys());
+            removed.removeAll(newData.getKeys());
+            this.removedKeys = removed;
+            this.dataPatch = newBytes;
+        }
+    }
+
+    /**
+     * 计算两代模板之间的补丁
+     *
+     * @param from 旧模板条目
+     * @param to 新模板条目
+     * @param versionKey 版本指纹的PDC键
+     * @return 补丁，材质不同或差异超出补丁能表达的范围时返回null
+     */
+    public static MetaPatch diff(ItemTemplateCache.TemplateEntry from, ItemTemplateCache.TemplateEntry to,
+                                 NamespacedKey versionKey) {
+        try {
+            ItemStack oldTemplate = from.getTemplate();
+            ItemStack newTemplate = to.getTemplate();
+            if (oldTemplate.getType() != newTemplate.getType()
+                || !oldTemplate.hasItemMeta() || !newTemplate.hasItemMeta()) {
+                return null;
+            }
+
+            MetaPatch patch = new MetaPatch(oldTemplate, from.getVersion(), to.getVersion(), versionKey,
+                oldTemplate.getItemMeta(), newTemplate.getItemMeta());
+
+            // 补丁作用于旧模板后必须与新模板一致，否则说明存在未覆盖的差异
+            ItemStack patched = from.getStampedTemplate().clone();
+            if (!patch.applyTo(patched) || !patched.isSimilar(to.getStampedTemplate())) {
+                return null;
+            }
+            return patch;
+
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 检查补丁能否作用于物品
+     * 物品带有旧版本指纹，或者没有指纹但与旧模板一致时才能打补丁
+     *
+     * @param item 物品
+     * @param version 物品的版本指纹，未标记时为null
+     * @return 是否可以打补丁
+     */
+    public boolean appliesTo(ItemStack item, Long version) {
+        return version != null ? version == fromVersion : item.isSimilar(fromTemplate);
+    }
+
+    /**
+     * 将补丁写入物品并更新版本指纹
+     *
+     * @param item 要修改的物品
+     * @return 是否成功
+     */
+    public boolean applyTo(ItemStack item) {
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) {
+            return false;
+        }
+
+        try {
+            if (displayNameChanged) {
+                meta.displayName(displayName);
+            }
+            if (loreChanged) {
+                meta.lore(lore);
+            }
+            if (attributesChanged) {
+                meta.setAttributeModifiers(attributes);
+            }
+            if (customModelDataChanged) {
+                meta.setCustomModelData(customModelData);
+            }
+
+            PersistentDataContainer data = meta.getPersistentDataContainer();
+            if (dataPatch != null) {
+                for (NamespacedKey key : removedKeys) {
+                    data.remove(key);
+                }
+                data.readFromBytes(dataPatch, false);
+            }
+            data.set(versionKey, PersistentDataType.LONG, toVersion);
+
+            return item.setItemMeta(meta);
+
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 获取补丁的起始版本指纹
+     *
+     * @return 起始版本指纹
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * 获取补丁的目标版本指纹
+     *
+     * @return 目标版本指纹
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+}
@@ -0,0 +1,131 @@
+package cn.i7mc.mythicItemUpdate.mythic;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 非MythicMobs物品的否定结果缓存
+ * 以材质和元数据哈希作为物品标识，记录MythicMobs API判定为普通物品的结果，
+ * 同样的物品再次出现时不再调用MythicMobs物品管理器
+ * 采用固定大小的直接映射表，冲突时直接覆盖旧标识，无锁且内存占用有界
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class NonMythicItemCache {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final long EMPTY = 0L;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public NonMythicItemCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 缓存槽位数量，会向上取整为2的幂
+     */
+    public NonMythicItemCache(int capacity) {
+        int size = capacity <= 16 ? 16 : Integer.highestOneBit((capacity - 1) << 1);
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * 计算物品标识
+     * 材质序号加一后放在高32位，保证标识不会与空槽位冲突
+     *
+     * @param item 物品
+     * @param meta 物品元数据
+     * @return 物品标识
+     */
+    public long identify(ItemStack item, ItemMeta meta) {
+        return ((long) (item.getType().ordinal() + 1) << 32) | (meta.hashCode() & 0xffffffffL);
+    }
+
+    /**
+     * 检查物品标识是否已被判定为非MythicMobs物品
+     *
+     * @param identity 物品标识
+     * @return 是否命中
+     */
+    public boolean contains(long identity) {
+        if (slots.get(indexOf(identity)) == identity) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        return false;
+    }
+
+    /**
+     * 记录物品标识为非MythicMobs物品
+     *
+     * @param identity 物品标识
+     */
+    public void remember(long identity) {
+        slots.set(indexOf(identity), identity);
+    }
+
+    /**
+     * 清空缓存（MythicMobs重载后物品定义可能变化）
+     * 命中统计保留，用于观察整体效果
+     */
+    public void invalidate() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, EMPTY);
+        }
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取命中率
+     *
+     * @return 命中率（0-1）
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * 计算标识对应的槽位，混合高低位使材质和哈希都参与定位
+     *
+     * @param identity 物品标识
+     * @return 槽位下标
+     */
+    private int indexOf(long identity) {
+        long mixed = identity * 0x9e3779b97f4a7c15L;
+        return (int) (mixed >>> 32) & mask;
+    }
+}
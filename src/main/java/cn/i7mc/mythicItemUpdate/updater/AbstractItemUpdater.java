@@ -3,10 +3,12 @@ package cn.i7mc.mythicItemUpdate.updater;
 import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
 import cn.i7mc.mythicItemUpdate.core.AbstractManager;
 import cn.i7mc.mythicItemUpdate.data.*;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDeadlineTracker;
 import cn.i7mc.mythicItemUpdate.util.Utils;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -81,6 +83,14 @@ public abstract class AbstractItemUpdater extends AbstractManager {
      * @return 更新结果
      */
     public abstract UpdateResult updateDroppedItem(DroppedItemData droppedData);
+
+    /**
+     * 更新容器中的所有物品，整个容器只写回一次
+     *
+     * @param containerData 容器数据
+     * @return 每个物品的更新结果
+     */
+    public abstract List<UpdateResult> updateContainer(ContainerItemData containerData);
     
     /**
      * 检查物品是否需要更新
@@ -120,6 +130,52 @@ public abstract class AbstractItemUpdater extends AbstractManager {
         return item;
     }
     
+    /**
+     * 获取更新后的物品，优先复用本次更新中相同物品的计算结果
+     * 
+     * @param item 原物品
+     * @param memo 本次更新的备忘录，为null时直接计算
+     * @return 更新后的物品
+     */
+    protected ItemStack getUpdatedItem(ItemStack item, UpdateMemo memo) {
+        if (memo == null || !Utils.isValidItem(item) || plugin.getItemDetector() == null) {
+            return getUpdatedItem(item);
+        }
+        
+        int generation = plugin.getItemDetector().getTemplateCache().getGeneration();
+        return memo.getUpdatedItem(item, generation, this::getUpdatedItem);
+    }
+    
+    /**
+     * 获取单个物品更新的时间预算跟踪器，与模板生成共用
+     * 
+     * @return 时间预算跟踪器
+     */
+    public ItemDeadlineTracker getDeadlineTracker() {
+        return plugin.getItemDetector().getTemplateCache().getDeadlineTracker();
+    }
+    
+    /**
+     * 检查物品类型是否因多次超出时间预算而被隔离
+     * 
+     * @param internalName 物品内部名称
+     * @return 是否已被隔离
+     */
+    protected boolean isQuarantined(String internalName) {
+        return getDeadlineTracker().isQuarantined(internalName);
+    }
+    
+    /**
+     * 记录一次物品更新的耗时
+     * 
+     * @param internalName 物品内部名称
+     * @param startNanos 开始时间（System.nanoTime）
+     * @return 是否超出时间预算
+     */
+    protected boolean recordElapsed(String internalName, long startNanos) {
+        return getDeadlineTracker().record(internalName, System.nanoTime() - startNanos);
+    }
+    
     /**
      * 重置计数器
      */
@@ -226,6 +282,26 @@ public abstract class AbstractItemUpdater extends AbstractManager {
         return new UpdateResult(true, message, null, true);
     }
     
+    /**
+     * 创建被隔离物品的跳过结果
+     * 
+     * @param internalName 物品内部名称
+     * @return 更新结果
+     */
+    protected UpdateResult createQuarantinedResult(String internalName) {
+        return createSkippedResult("物品类型多次超出时间预算，已被隔离: " + internalName);
+    }
+    
+    /**
+     * 创建推迟处理的结果，不计入处理数量，稍后重新处理时再计入
+     * 
+     * @param message 消息
+     * @return 更新结果
+     */
+    protected UpdateResult createDeferredResult(String message) {
+        return new UpdateResult(true, message, null, true, true);
+    }
+    
     /**
      * 安全地执行更新操作
      * 
@@ -242,6 +318,28 @@ public abstract class AbstractItemUpdater extends AbstractManager {
         }
     }
     
+    /**
+     * 在时间预算内安全地执行单个物品的更新操作
+     * 被隔离的物品类型直接跳过，超出时间预算的记录到跟踪器
+     * 
+     * @param operation 操作描述
+     * @param internalName 物品内部名称
+     * @param updateOperation 更新操作
+     * @return 更新结果
+     */
+    protected UpdateResult timedUpdate(String operation, String internalName, UpdateOperation updateOperation) {
+        if (isQuarantined(internalName)) {
+            return createQuarantinedResult(internalName);
+        }
+        
+        long startNanos = System.nanoTime();
+        try {
+            return safeUpdate(operation, updateOperation);
+        } finally {
+            recordElapsed(internalName, startNanos);
+        }
+    }
+    
     
     /**
      * 更新操作接口
@@ -259,16 +357,22 @@ public abstract class AbstractItemUpdater extends AbstractManager {
         private final String message;
         private final Throwable error;
         private final boolean skipped;
+        private final boolean deferred;
         
         public UpdateResult(boolean success, String message, Throwable error) {
             this(success, message, error, false);
         }
         
         public UpdateResult(boolean success, String message, Throwable error, boolean skipped) {
+            this(success, message, error, skipped, false);
+        }
+        
+        public UpdateResult(boolean success, String message, Throwable error, boolean skipped, boolean deferred) {
             this.success = success;
             this.message = message;
             this.error = error;
             this.skipped = skipped;
+            this.deferred = deferred;
         }
         
         public boolean isSuccess() {
@@ -287,14 +391,18 @@ public abstract class AbstractItemUpdater extends AbstractManager {
             return skipped;
         }
         
+        public boolean isDeferred() {
+            return deferred;
+        }
+        
         public boolean hasError() {
             return error != null;
         }
         
         @Override
         public String toString() {
-            return String.format("UpdateResult{success=%s, skipped=%s, message='%s', hasError=%s}",
-                success, skipped, message, hasError());
+            return String.format("UpdateResult{success=%s, skipped=%s, deferred=%s, message='%s', hasError=%s}",
+                success, skipped, deferred, message, hasError());
         }
     }
     
@@ -3,12 +3,28 @@ package cn.i7mc.mythicItemUpdate.updater;
 import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
 import cn.i7mc.mythicItemUpdate.core.AbstractManager;
 import cn.i7mc.mythicItemUpdate.data.*;
+import cn.i7mc.mythicItemUpdate.manager.ConfigManager;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDetector;
+import cn.i7mc.mythicItemUpdate.updater.UpdateScheduler.UnitType;
+import cn.i7mc.mythicItemUpdate.updater.UpdateScheduler.WorkUnit;
 import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * 批量物品更新管理器
@@ -19,16 +35,30 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class BatchUpdateManager extends AbstractManager {
     
+    // 每个掉落物工作单元包含的实体数量
+    private static final int ENTITY_GROUP_SIZE = 64;
+    
+    // 进度消息的最小输出间隔（毫秒）
+    private static final long PROGRESS_MESSAGE_INTERVAL = 1000L;
+    
     private ItemAttributeUpdater itemUpdater;
-    private boolean updateInProgress;
+    private ComparisonPipeline comparisonPipeline;
+    private OfflinePlayerUpdater offlinePlayerUpdater;
+    private final AtomicBoolean updateInProgress;
     private final AtomicInteger currentBatch;
     private final AtomicInteger totalBatches;
+    private final UpdateScheduler updateScheduler;
+    private final ReloadCoordinator reloadCoordinator;
+    private long lastProgressMessage;
+    private UpdateMemo passMemo;
     
     public BatchUpdateManager(MythicItemUpdate plugin) {
         super(plugin);
-        this.updateInProgress = false;
+        this.updateInProgress = new AtomicBoolean(false);
         this.currentBatch = new AtomicInteger(0);
         this.totalBatches = new AtomicInteger(0);
+        this.updateScheduler = new UpdateScheduler(plugin, currentBatch, totalBatches, this::sendProgressMessage);
+        this.reloadCoordinator = new ReloadCoordinator(plugin, this);
     }
     
     @Override
@@ -41,6 +71,13 @@ public class BatchUpdateManager extends AbstractManager {
                 return false;
             }
             
+            // 初始化异步比较流水线
+            comparisonPipeline = new ComparisonPipeline(plugin, itemUpdater,
+                plugin.getConfigManager().getWorkerThreads());
+            
+            // 初始化离线玩家数据更新器
+            offlinePlayerUpdater = new OfflinePlayerUpdater(plugin, plugin.getConfigManager().getOfflineThreads());
+            
             info("批量更新管理器初始化成功");
             return true;
             
@@ -69,12 +106,25 @@ public class BatchUpdateManager extends AbstractManager {
     @Override
     public void shutdown() {
         try {
+            reloadCoordinator.shutdown();
+            updateScheduler.cancel();
+            
+            if (offlinePlayerUpdater != null) {
+                offlinePlayerUpdater.cancel();
+                offlinePlayerUpdater = null;
+            }
+            
+            if (comparisonPipeline != null) {
+                comparisonPipeline.shutdown();
+                comparisonPipeline = null;
+            }
+            
             if (itemUpdater != null) {
                 itemUpdater.disable();
                 itemUpdater = null;
             }
             
-            updateInProgress = false;
+            updateInProgress.set(false);
             
         } catch (Exception e) {
             handleError("关闭批量更新管理器时发生错误", e);
@@ -92,32 +142,38 @@ public class BatchUpdateManager extends AbstractManager {
      * @return 更新结果
      */
     public BatchUpdateResult performFullUpdate() {
-        if (updateInProgress) {
-            return new BatchUpdateResult(false, "更新已在进行中", null);
+        return performFullUpdate(null);
+    }
+
+    /**
+     * 执行指定物品定义的更新
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @return 更新结果
+     */
+    public BatchUpdateResult performFullUpdate(Set<String> internalNames) {
+        // 区域化服务端无法在单个线程中遍历所有世界，改为按区域分发执行
+        if (plugin.getExecutionBackend().isRegionized()) {
+            return startScheduledUpdate(internalNames)
+                ? new BatchUpdateResult(true, "更新已分发到各区域执行", null)
+                : new BatchUpdateResult(false, "更新已在进行中", null);
         }
 
-        updateInProgress = true;
-        long startTime = System.currentTimeMillis();
+        if (!updateInProgress.compareAndSet(false, true)) {
+            return new BatchUpdateResult(false, "更新已在进行中", null);
+        }
 
         try {
             // 重置计数器
             currentBatch.set(0);
             totalBatches.set(0);
 
-            // 检测所有MythicMobs物品
-            DetectionResult detection = plugin.getItemDetector().detectAllMythicItems();
-
-            if (detection.hasError()) {
-                return new BatchUpdateResult(false, "物品检测失败: " + detection.getError(), null);
-            }
-
-            if (detection.isEmpty()) {
-                return new BatchUpdateResult(true, "未找到需要更新的物品", new BatchUpdateStatistics());
+            // 边检测边写回，不在内存中保留完整的检测结果
+            BatchUpdateStatistics statistics = performStreamingUpdate(internalNames);
+            if (statistics.getTotalProcessed() == 0) {
+                return new BatchUpdateResult(true, "未找到需要更新的物品", statistics);
             }
 
-            // 执行批量更新
-            BatchUpdateStatistics statistics = performBatchUpdate(detection);
-
             return new BatchUpdateResult(true, "更新完成", statistics);
 
         } catch (Exception e) {
@@ -125,34 +181,40 @@ public class BatchUpdateManager extends AbstractManager {
             return new BatchUpdateResult(false, "更新失败: " + e.getMessage(), null);
 
         } finally {
-            updateInProgress = false;
+            updateInProgress.set(false);
         }
     }
     
     /**
-     * 执行批量更新
-     * 
-     * @param detection 检测结果
+     * 预览更新范围，只检测不写回
+     * 会复制并保留所有检测到的物品，仅用于报告
+     *
+     * @param internalNames 需要检测的内部名称集合，为null时检测全部
+     * @return 检测结果
+     */
+    public DetectionResult performDryRun(Set<String> internalNames) {
+        return plugin.getItemDetector().detectAllMythicItems(internalNames);
+    }
+
+    /**
+     * 执行流式批量更新
+     * 检测结果进入有界缓冲区，缓冲的物品数达到上限时先写回再继续检测
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
      * @return 更新统计信息
      */
-    private BatchUpdateStatistics performBatchUpdate(DetectionResult detection) throws Exception {
+    private BatchUpdateStatistics performStreamingUpdate(Set<String> internalNames) throws Exception {
         BatchUpdateStatistics statistics = new BatchUpdateStatistics();
-        
-        // 更新玩家物品
-        if (!detection.getPlayerData().isEmpty()) {
-            updatePlayerItems(detection.getPlayerData(), statistics);
-        }
-        
-        // 更新掉落物品
-        if (!detection.getDroppedItems().isEmpty()) {
-            updateDroppedItems(detection.getDroppedItems(), statistics);
-        }
-        
-        // 更新容器物品
-        if (!detection.getContainerData().isEmpty()) {
-            updateContainerItems(detection.getContainerData(), statistics);
+        StreamingBuffer buffer = new StreamingBuffer(plugin.getConfigManager().getStreamBufferSize(), statistics,
+            getPassMemo(statistics));
+
+        try {
+            plugin.getItemDetector().streamAllMythicItems(internalNames, buffer);
+            buffer.flush();
+        } finally {
+            clearPassMemo();
         }
-        
+
         return statistics;
     }
     
@@ -161,17 +223,19 @@ public class BatchUpdateManager extends AbstractManager {
      *
      * @param playerDataList 玩家数据列表
      * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
      */
-    private void updatePlayerItems(List<PlayerItemData> playerDataList, BatchUpdateStatistics statistics) throws Exception {
+    private void updatePlayerItems(List<PlayerItemData> playerDataList, BatchUpdateStatistics statistics,
+                                   UpdateMemo memo) throws Exception {
         for (PlayerItemData playerData : playerDataList) {
-            Player player = Utils.getOnlinePlayer(playerData.getPlayerName());
+            Player player = Utils.getOnlinePlayer(playerData.getPlayerId());
             if (player == null) {
                 continue;
             }
 
-
             List<MythicItemData> allItems = playerData.getAllItems();
-            updateItemBatch(allItems, statistics, player);
+            // 这里没有重新执行的机会，不允许推迟，否则被推迟的物品会被直接丢弃
+            updateItemBatch(allItems, statistics, player, memo, false);
 
             statistics.incrementPlayersProcessed();
         }
@@ -182,9 +246,12 @@ public class BatchUpdateManager extends AbstractManager {
      *
      * @param droppedItems 掉落物品列表
      * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
      */
-    private void updateDroppedItems(List<DroppedItemData> droppedItems, BatchUpdateStatistics statistics) throws Exception {
-        updateDroppedItemBatch(droppedItems, statistics);
+    private void updateDroppedItems(List<DroppedItemData> droppedItems, BatchUpdateStatistics statistics,
+                                    UpdateMemo memo) throws Exception {
+        updateDroppedItemBatch(droppedItems, statistics, memo);
+        completeBatch();
     }
     
     /**
@@ -192,14 +259,29 @@ public class BatchUpdateManager extends AbstractManager {
      *
      * @param containerDataList 容器数据列表
      * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
      */
-    private void updateContainerItems(List<ContainerItemData> containerDataList, BatchUpdateStatistics statistics) throws Exception {
+    private void updateContainerItems(List<ContainerItemData> containerDataList, BatchUpdateStatistics statistics,
+                                      UpdateMemo memo) throws Exception {
         for (ContainerItemData containerData : containerDataList) {
-            List<MythicItemData> items = containerData.getItems();
-            updateItemBatch(items, statistics, null); // 容器物品不需要Player信息
-
-            statistics.incrementContainersProcessed();
+            updateContainer(containerData, statistics, memo);
+            completeBatch();
+        }
+    }
+    
+    /**
+     * 更新单个容器的物品
+     *
+     * @param containerData 容器数据
+     * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
+     */
+    private void updateContainer(ContainerItemData containerData, BatchUpdateStatistics statistics,
+                                 UpdateMemo memo) throws Exception {
+        for (AbstractItemUpdater.UpdateResult result : itemUpdater.updateContainer(containerData, memo)) {
+            recordResult(result, statistics);
         }
+        statistics.incrementContainersProcessed();
     }
     
     /**
@@ -208,24 +290,31 @@ public class BatchUpdateManager extends AbstractManager {
      * @param batch 物品批次
      * @param statistics 统计信息
      * @param player 玩家实例（可能为null，用于容器物品等情况）
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @param allowDeferral 是否允许超出时间预算时推迟剩余物品，调用方必须能重新处理被推迟的物品
+     * @return 是否有物品因超出时间预算被推迟
      */
-    private void updateItemBatch(List<MythicItemData> batch, BatchUpdateStatistics statistics, Player player) throws Exception {
-        for (MythicItemData itemData : batch) {
-            AbstractItemUpdater.UpdateResult result = itemUpdater.updateItem(itemData, player);
-
-            if (result.isSuccess()) {
-                if (result.isSkipped()) {
-                    statistics.incrementSkipped();
+    private boolean updateItemBatch(List<MythicItemData> batch, BatchUpdateStatistics statistics, Player player,
+                                    UpdateMemo memo, boolean allowDeferral) throws Exception {
+        if (player != null) {
+            // 同一玩家的物品按物品栏分组后一次性写回
+            boolean deferred = false;
+            List<AbstractItemUpdater.UpdateResult> results = itemUpdater.updatePlayerItems(batch, player, memo, allowDeferral);
+            for (AbstractItemUpdater.UpdateResult result : results) {
+                if (result.isDeferred()) {
+                    statistics.incrementDeferred();
+                    deferred = true;
                 } else {
-                    statistics.incrementUpdated();
+                    recordResult(result, statistics);
                 }
-            } else {
-                statistics.incrementFailed();
             }
+            return deferred;
         }
-
-        currentBatch.incrementAndGet();
-        sendProgressMessage();
+        
+        for (MythicItemData itemData : batch) {
+            recordResult(itemUpdater.updateItem(itemData, player, memo), statistics);
+        }
+        return false;
     }
     
     /**
@@ -233,34 +322,78 @@ public class BatchUpdateManager extends AbstractManager {
      *
      * @param batch 掉落物品批次
      * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
      */
-    private void updateDroppedItemBatch(List<DroppedItemData> batch, BatchUpdateStatistics statistics) throws Exception {
+    private void updateDroppedItemBatch(List<DroppedItemData> batch, BatchUpdateStatistics statistics,
+                                        UpdateMemo memo) throws Exception {
         for (DroppedItemData droppedData : batch) {
-            AbstractItemUpdater.UpdateResult result = itemUpdater.updateDroppedItem(droppedData);
-
-            if (result.isSuccess()) {
-                if (result.isSkipped()) {
-                    statistics.incrementSkipped();
-                } else {
-                    statistics.incrementUpdated();
-                }
+            recordResult(itemUpdater.updateDroppedItem(droppedData, memo), statistics);
+        }
+    }
+    
+    /**
+     * 将单个物品的更新结果计入统计
+     *
+     * @param result 更新结果
+     * @param statistics 统计信息
+     */
+    private void recordResult(AbstractItemUpdater.UpdateResult result, BatchUpdateStatistics statistics) {
+        if (result.isSuccess()) {
+            if (result.isSkipped()) {
+                statistics.incrementSkipped();
             } else {
-                statistics.incrementFailed();
+                statistics.incrementUpdated();
             }
+        } else {
+            statistics.incrementFailed();
+        }
+    }
+    
+
+    
+    /**
+     * 获取本次更新的备忘录，统计信息不同时说明进入了新的一次更新
+     *
+     * @param statistics 本次更新的统计信息
+     * @return 备忘录
+     */
+    private synchronized UpdateMemo getPassMemo(BatchUpdateStatistics statistics) {
+        if (passMemo == null || !passMemo.belongsTo(statistics)) {
+            passMemo = new UpdateMemo(statistics, plugin.getItemDetector().getTemplateCache().getGeneration());
         }
+        return passMemo;
+    }
+
+    /**
+     * 释放本次更新的备忘录
+     */
+    private synchronized void clearPassMemo() {
+        passMemo = null;
+    }
 
+    /**
+     * 完成一个批次并更新进度
+     */
+    private void completeBatch() {
         currentBatch.incrementAndGet();
         sendProgressMessage();
     }
     
-
-    
     /**
-     * 发送进度消息
+     * 发送进度消息（限制输出频率）
      */
     private void sendProgressMessage() {
-        if (plugin.getConfigManager().getConfigValue("logging.show-progress", true)) {
+        if (!plugin.getConfigManager().getConfigValue("logging.show-progress", true)) {
+            return;
         }
+        
+        long now = System.currentTimeMillis();
+        if (now - lastProgressMessage < PROGRESS_MESSAGE_INTERVAL) {
+            return;
+        }
+        
+        lastProgressMessage = now;
+        plugin.getMessageManager().sendProgressMessage(currentBatch.get(), totalBatches.get());
     }
     
 
@@ -271,7 +404,7 @@ public class BatchUpdateManager extends AbstractManager {
      * @return 是否正在更新
      */
     public boolean isUpdateInProgress() {
-        return updateInProgress;
+        return updateInProgress.get();
     }
     
     /**
@@ -294,18 +427,295 @@ public class BatchUpdateManager extends AbstractManager {
 
     /**
      * 触发全局更新
-     * 在主线程中执行完整的物品更新流程
+     * 只处理最近一次重载中发生变化的物品定义，工作被拆分到多个tick中执行
+     * 经由重载协调器安排，与重载触发的更新不会重复执行
      */
     public void triggerGlobalUpdate() {
         try {
-            BatchUpdateResult result = performFullUpdate();
+            reloadCoordinator.schedulePass();
+        } catch (Exception e) {
+            handleError("执行全局更新时发生错误", e);
+        }
+    }
+
+    /**
+     * 获取重载协调器
+     *
+     * @return 重载协调器
+     */
+    public ReloadCoordinator getReloadCoordinator() {
+        return reloadCoordinator;
+    }
+
+    /**
+     * 获取离线玩家数据更新器
+     *
+     * @return 离线玩家数据更新器
+     */
+    public OfflinePlayerUpdater getOfflinePlayerUpdater() {
+        return offlinePlayerUpdater;
+    }
+
+    /**
+     * 开始分时执行的物品更新
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @return 是否成功开始
+     */
+    public boolean startScheduledUpdate(Set<String> internalNames) {
+        return startScheduledUpdate(internalNames, null);
+    }
+
+    /**
+     * 开始分时执行的物品更新
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @param onComplete 更新结束后的回调，可以为null；更新被取消时不会调用
+     * @return 是否成功开始
+     */
+    public boolean startScheduledUpdate(Set<String> internalNames, Consumer<BatchUpdateResult> onComplete) {
+        if (updateScheduler.isRunning() || !updateInProgress.compareAndSet(false, true)) {
+            return false;
+        }
 
-            if (!result.isSuccess()) {
-                warning("全局物品更新失败: " + result.getMessage());
+        List<WorkUnit> units = buildWorkUnits(internalNames);
+        if (units.isEmpty()) {
+            updateInProgress.set(false);
+            if (onComplete != null) {
+                onComplete.accept(new BatchUpdateResult(true, "未找到需要更新的物品", null));
             }
+            return true;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        boolean started = updateScheduler.start(units, result -> {
+            updateInProgress.set(false);
+            onScheduledUpdateComplete(result, startTime);
+            if (onComplete != null) {
+                onComplete.accept(result);
+            }
+        });
+
+        if (!started) {
+            updateInProgress.set(false);
+        }
+        return started;
+    }
+
+    /**
+     * 取消正在进行的分时更新，剩余的工作单元被丢弃
+     */
+    public void cancelScheduledUpdate() {
+        updateScheduler.cancel();
+        clearPassMemo();
+        updateInProgress.set(false);
+    }
+
+    /**
+     * 将全局更新拆分为工作单元
+     * 每个玩家、每个已加载区块的容器、每组掉落物各为一个单元
+     * 区域化服务端下掉落物和容器改为玩家周围的区块单元
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @return 工作单元列表
+     */
+    private List<WorkUnit> buildWorkUnits(Set<String> internalNames) {
+        List<WorkUnit> units = new ArrayList<>();
+        ConfigManager config = plugin.getConfigManager();
+        boolean regionized = plugin.getExecutionBackend().isRegionized();
+
+        if (config.isUpdateInventoryEnabled() || config.isUpdateEnderChestEnabled()) {
+            for (Player player : Utils.getOnlinePlayers()) {
+                UUID playerId = player.getUniqueId();
+                units.add(new WorkUnit(UnitType.PLAYER, "玩家 " + player.getName(), playerId, statistics -> {
+                    Player current = Bukkit.getPlayer(playerId);
+                    if (current == null) {
+                        return;
+                    }
+
+                    if (config.isAsyncComparisonEnabled()) {
+                        updateScheduler.trackAsync(comparisonPipeline.submitPlayer(current, internalNames, statistics,
+                            getPassMemo(statistics)));
+                        return;
+                    }
+
+                    PlayerItemData playerData = plugin.getItemDetector().detectPlayerItems(current, internalNames);
+                    if (playerData.hasItems()
+                        && updateItemBatch(playerData.getAllItems(), statistics, current, getPassMemo(statistics), true)) {
+                        // 有物品超出时间预算，剩余物品留到下次执行本单元时处理
+                        throw new UpdateScheduler.UnitDeferredException("物品更新超出时间预算");
+                    }
+                    statistics.incrementPlayersProcessed();
+                }));
+            }
+        }
+
+        // 惰性模式下掉落物和容器在区块加载时更新
+        if (config.isUpdateOnChunkLoadEnabled()) {
+            return units;
+        }
+
+        if (regionized) {
+            if (config.isUpdateDroppedItemsEnabled() || config.isUpdateContainersEnabled()) {
+                buildRegionChunkUnits(units, internalNames);
+            }
+            return units;
+        }
+
+        if (config.isUpdateDroppedItemsEnabled()) {
+            for (World world : Bukkit.getWorlds()) {
+                List<Item> itemEntities = new ArrayList<>(world.getEntitiesByClass(Item.class));
+                for (int start = 0; start < itemEntities.size(); start += ENTITY_GROUP_SIZE) {
+                    List<Item> group = itemEntities.subList(start, Math.min(start + ENTITY_GROUP_SIZE, itemEntities.size()));
+                    units.add(new WorkUnit(UnitType.ENTITIES, "世界 " + world.getName() + " 的掉落物", statistics -> {
+                        List<DroppedItemData> droppedItems = plugin.getItemDetector().detectDroppedItems(group, internalNames);
+                        if (!droppedItems.isEmpty()) {
+                            updateDroppedItemBatch(droppedItems, statistics, getPassMemo(statistics));
+                        }
+                    }));
+                }
+            }
+        }
+
+        if (config.isUpdateContainersEnabled()) {
+            // 每个已加载区块一个单元，由调度器按tick预算逐个处理
+            for (World world : Bukkit.getWorlds()) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    units.add(createChunkUnit(world, chunk.getX(), chunk.getZ(), internalNames, false, true));
+                }
+            }
+        }
+
+        return units;
+    }
+
+    /**
+     * 为玩家周围的区块创建工作单元，每个区块在所属区域线程上检测掉落物和容器
+     *
+     * @param units 工作单元列表
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     */
+    private void buildRegionChunkUnits(List<WorkUnit> units, Set<String> internalNames) {
+        ConfigManager config = plugin.getConfigManager();
+        int radius = config.getRegionChunkRadius();
+        Set<String> visited = new HashSet<>();
+
+        for (Player player : Utils.getOnlinePlayers()) {
+            Location location = player.getLocation();
+            World world = location.getWorld();
+            if (world == null) {
+                continue;
+            }
+
+            int centerX = location.getBlockX() >> 4;
+            int centerZ = location.getBlockZ() >> 4;
+
+            for (int chunkX = centerX - radius; chunkX <= centerX + radius; chunkX++) {
+                for (int chunkZ = centerZ - radius; chunkZ <= centerZ + radius; chunkZ++) {
+                    if (!visited.add(world.getName() + ":" + chunkX + ":" + chunkZ)) {
+                        continue;
+                    }
+
+                    units.add(createChunkUnit(world, chunkX, chunkZ, internalNames,
+                        config.isUpdateDroppedItemsEnabled(), config.isUpdateContainersEnabled()));
+                }
+            }
+        }
+    }
+
+    /**
+     * 创建单个区块的工作单元，执行时区块已卸载则跳过
+     *
+     * @param world 世界
+     * @param chunkX 区块X坐标
+     * @param chunkZ 区块Z坐标
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @param droppedItems 是否处理区块中的掉落物
+     * @param containers 是否处理区块中的容器
+     * @return 工作单元
+     */
+    private WorkUnit createChunkUnit(World world, int chunkX, int chunkZ, Set<String> internalNames,
+                                     boolean droppedItems, boolean containers) {
+        String description = String.format("区块 %s[%d,%d]", world.getName(), chunkX, chunkZ);
+        return new WorkUnit(UnitType.CHUNK, description, world, chunkX, chunkZ, statistics -> {
+            if (world.isChunkLoaded(chunkX, chunkZ)) {
+                updateChunkContents(world.getChunkAt(chunkX, chunkZ), internalNames, droppedItems, containers, statistics,
+                    getPassMemo(statistics));
+            }
+        });
+    }
+
+    /**
+     * 更新单个区块中的掉落物和容器
+     *
+     * @param chunk 区块
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @param droppedItems 是否处理区块中的掉落物
+     * @param containers 是否处理区块中的容器
+     * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
+     */
+    private void updateChunkContents(Chunk chunk, Set<String> internalNames, boolean droppedItems, boolean containers,
+                                     BatchUpdateStatistics statistics, UpdateMemo memo) throws Exception {
+        if (droppedItems) {
+            List<Item> itemEntities = new ArrayList<>();
+            for (Entity entity : chunk.getEntities()) {
+                if (entity instanceof Item) {
+                    itemEntities.add((Item) entity);
+                }
+            }
+
+            List<DroppedItemData> droppedData = plugin.getItemDetector().detectDroppedItems(itemEntities, internalNames);
+            if (!droppedData.isEmpty()) {
+                updateDroppedItemBatch(droppedData, statistics, memo);
+            }
+        }
+
+        if (containers) {
+            for (ContainerItemData containerData : plugin.getItemDetector().detectContainerItems(chunk, internalNames)) {
+                updateContainer(containerData, statistics, memo);
+            }
+        }
+    }
+
+    /**
+     * 更新单个区块中的所有MythicMobs物品，必须在区块所属的线程调用
+     *
+     * @param chunk 区块
+     * @return 更新结果
+     */
+    public BatchUpdateResult updateChunk(Chunk chunk) {
+        try {
+            BatchUpdateStatistics statistics = new BatchUpdateStatistics();
+            ConfigManager config = plugin.getConfigManager();
+            updateChunkContents(chunk, null, config.isUpdateDroppedItemsEnabled(), config.isUpdateContainersEnabled(),
+                statistics, null);
+
+            return new BatchUpdateResult(true, "区块物品更新完成", statistics);
 
         } catch (Exception e) {
-            handleError("执行全局更新时发生错误", e);
+            handleError(String.format("更新区块物品失败: %s[%d,%d]", chunk.getWorld().getName(), chunk.getX(), chunk.getZ()), e);
+            return new BatchUpdateResult(false, "更新失败: " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * 分时更新结束后的处理
+     *
+     * @param result 更新结果
+     * @param startTime 开始时间
+     */
+    private void onScheduledUpdateComplete(BatchUpdateResult result, long startTime) {
+        clearPassMemo();
+
+        if (!result.isSuccess()) {
+            warning("全局物品更新失败: " + result.getMessage());
+        }
+
+        if (result.hasStatistics() && plugin.getConfigManager().getConfigValue("logging.log-statistics", true)) {
+            info(String.format("全局物品更新结束: %s，耗时 %s",
+                result.getStatistics(), Utils.formatTime(System.currentTimeMillis() - startTime)));
         }
     }
 
@@ -320,15 +730,87 @@ public class BatchUpdateManager extends AbstractManager {
             BatchUpdateStatistics statistics = new BatchUpdateStatistics();
             List<PlayerItemData> playerList = new ArrayList<>();
             playerList.add(playerData);
-            updatePlayerItems(playerList, statistics);
+            updatePlayerItems(playerList, statistics, null);
 
             return new BatchUpdateResult(true, "玩家物品更新完成", statistics);
 
         } catch (Exception e) {
-            String playerName = playerData.getPlayer() != null ?
-                playerData.getPlayer().getName() : playerData.getPlayerName();
-            handleError("更新玩家物品失败: " + playerName, e);
+            handleError("更新玩家物品失败: " + playerData.getPlayerName(), e);
             return new BatchUpdateResult(false, "更新失败: " + e.getMessage(), null);
         }
     }
+
+    /**
+     * 流式更新缓冲区
+     * 按物品数量限制缓冲的检测结果，超出上限时在检测线程上同步写回，形成背压
+     */
+    private class StreamingBuffer implements ItemDetector.DetectionSink {
+        private final int capacity;
+        private final BatchUpdateStatistics statistics;
+        private final UpdateMemo memo;
+        private final List<PlayerItemData> players;
+        private final List<DroppedItemData> droppedItems;
+        private final List<ContainerItemData> containers;
+        private int bufferedItems;
+
+        StreamingBuffer(int capacity, BatchUpdateStatistics statistics, UpdateMemo memo) {
+            this.capacity = capacity;
+            this.statistics = statistics;
+            this.memo = memo;
+            this.players = new ArrayList<>();
+            this.droppedItems = new ArrayList<>();
+            this.containers = new ArrayList<>();
+        }
+
+        @Override
+        public void acceptPlayer(PlayerItemData playerData) throws Exception {
+            players.add(playerData);
+            totalBatches.incrementAndGet();
+            buffered(playerData.getTotalItemCount());
+        }
+
+        @Override
+        public void acceptDroppedItem(DroppedItemData droppedData) throws Exception {
+            if (droppedItems.isEmpty()) {
+                totalBatches.incrementAndGet();
+            }
+            droppedItems.add(droppedData);
+            buffered(1);
+        }
+
+        @Override
+        public void acceptContainer(ContainerItemData containerData) throws Exception {
+            containers.add(containerData);
+            totalBatches.incrementAndGet();
+            buffered(containerData.getItemCount());
+        }
+
+        /**
+         * 写回缓冲区中的全部检测结果
+         */
+        void flush() throws Exception {
+            for (PlayerItemData playerData : players) {
+                updatePlayerItems(Collections.singletonList(playerData), statistics, memo);
+                completeBatch();
+            }
+            if (!droppedItems.isEmpty()) {
+                updateDroppedItems(droppedItems, statistics, memo);
+            }
+            if (!containers.isEmpty()) {
+                updateContainerItems(containers, statistics, memo);
+            }
+
+            players.clear();
+            droppedItems.clear();
+            containers.clear();
+            bufferedItems = 0;
+        }
+
+        private void buffered(int itemCount) throws Exception {
+            bufferedItems += itemCount;
+            if (bufferedItems >= capacity) {
+                flush();
+            }
+        }
+    }
 }
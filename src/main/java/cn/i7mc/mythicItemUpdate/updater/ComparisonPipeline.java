@@ -0,0 +1,294 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateStatistics;
+import cn.i7mc.mythicItemUpdate.data.MythicItemData;
+import cn.i7mc.mythicItemUpdate.data.MythicItemData.ItemLocation;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDeadlineTracker;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDetector;
+import cn.i7mc.mythicItemUpdate.mythic.ItemTemplateCache;
+import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步比较流水线
+ * 主线程快照物品 -> 工作线程比较并生成替换计划 -> 主线程校验槽位后写入
+ * 只有快照和写入两个阶段占用主线程时间（Folia下为玩家所属的区域线程）
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class ComparisonPipeline {
+
+    private final MythicItemUpdate plugin;
+    private final ItemAttributeUpdater itemUpdater;
+    private final ExecutorService workers;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param itemUpdater 物品属性更新器
+     * @param threads 工作线程数量
+     */
+    public ComparisonPipeline(MythicItemUpdate plugin, ItemAttributeUpdater itemUpdater, int threads) {
+        this.plugin = plugin;
+        this.itemUpdater = itemUpdater;
+
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MythicItemUpdate-Worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交单个玩家的物品更新，必须在玩家所属的线程调用
+     *
+     * @param player 玩家
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @param statistics 统计信息
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 写入阶段结束时完成的Future
+     */
+    public CompletableFuture<Void> submitPlayer(Player player, Set<String> internalNames, BatchUpdateStatistics statistics,
+                                                UpdateMemo memo) {
+        // 阶段一：主线程快照
+        List<SlotSnapshot> snapshots = snapshotPlayer(player, internalNames);
+        if (snapshots.isEmpty()) {
+            statistics.incrementPlayersProcessed();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        UUID playerId = player.getUniqueId();
+        int generation = plugin.getItemDetector().getTemplateCache().getGeneration();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        // 阶段二：工作线程比较；阶段三：回到主线程写入
+        CompletableFuture.supplyAsync(() -> plan(snapshots, memo, generation), workers)
+            .whenComplete((updates, error) -> runOnOwnerThread(playerId, () -> {
+                try {
+                    if (error != null) {
+                        plugin.getLogger().warning("[ComparisonPipeline] 比较物品失败: " + error.getMessage());
+                        return;
+                    }
+                    apply(playerId, snapshots.size(), updates, statistics);
+                } finally {
+                    done.complete(null);
+                }
+            }, done));
+
+        return done;
+    }
+
+    /**
+     * 关闭工作线程
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * 阶段一：复制玩家背包和末影箱中需要检查的MythicMobs物品
+     *
+     * @param player 玩家
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @return 槽位快照列表
+     */
+    private List<SlotSnapshot> snapshotPlayer(Player player, Set<String> internalNames) {
+        List<SlotSnapshot> snapshots = new ArrayList<>();
+
+        if (plugin.getConfigManager().isUpdateInventoryEnabled()) {
+            snapshotInventory(player.getInventory(), ItemLocation.INVENTORY, internalNames, snapshots);
+        }
+
+        if (plugin.getConfigManager().isUpdateEnderChestEnabled()) {
+            snapshotInventory(player.getEnderChest(), ItemLocation.ENDERCHEST, internalNames, snapshots);
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * 复制单个背包中需要检查的物品
+     *
+     * @param inventory 背包
+     * @param location 位置类型
+     * @param internalNames 需要更新的内部名称集合
+     * @param snapshots 快照列表
+     */
+    private void snapshotInventory(Inventory inventory, ItemLocation location, Set<String> internalNames,
+                                   List<SlotSnapshot> snapshots) {
+        ItemDetector detector = plugin.getItemDetector();
+        ItemDeadlineTracker deadlines = itemUpdater.getDeadlineTracker();
+        ItemStack[] contents = inventory.getContents();
+
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack item = contents[slot];
+            if (!Utils.isValidItem(item) || !item.hasItemMeta()) {
+                continue;
+            }
+
+            // 元数据是副本，读取一次后交给工作线程比较版本指纹
+            ItemMeta meta = item.getItemMeta();
+            String internalName = detector.resolveMythicType(item, meta);
+            if (internalName == null || (internalNames != null && !internalNames.contains(internalName))) {
+                continue;
+            }
+
+            // 多次超出时间预算的物品类型不再检查
+            if (deadlines.isQuarantined(internalName)) {
+                continue;
+            }
+
+            // 模板在主线程准备好，工作线程只读取；ID查找和取条目在同一份模板表上完成，重载换表时不会错位
+            ItemTemplateCache templateCache = detector.getTemplateCache();
+            ItemTemplateCache.TemplateEntry entry = templateCache.peekEntry(internalName);
+            if (entry == null) {
+                // 只对缓存未命中时的模板生成计时，工作线程的耗时受线程调度影响，不计入时间预算
+                long startNanos = System.nanoTime();
+                entry = templateCache.getEntry(internalName);
+                deadlines.record(internalName, System.nanoTime() - startNanos);
+            }
+            if (entry != null) {
+                snapshots.add(new SlotSnapshot(location, slot, internalName, item.clone(), meta, entry));
+            }
+        }
+    }
+
+    /**
+     * 阶段二：在工作线程中比较快照并生成替换计划
+     * 相同的物品在本次更新中只比较一次，之后复用备忘录中的结果
+     *
+     * @param snapshots 槽位快照列表
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @param generation 快照时的模板代次
+     * @return 需要写入的物品数据
+     */
+    private List<MythicItemData> plan(List<SlotSnapshot> snapshots, UpdateMemo memo, int generation) {
+        List<MythicItemData> updates = new ArrayList<>();
+
+        for (SlotSnapshot snapshot : snapshots) {
+            ItemStack updatedItem = memo != null
+                ? memo.getUpdatedItem(snapshot.item, generation, item -> compare(snapshot))
+                : compare(snapshot);
+            if (updatedItem == null || updatedItem == snapshot.item) {
+                continue;
+            }
+
+            MythicItemData itemData = new MythicItemData(snapshot.internalName, snapshot.item, snapshot.slot, snapshot.location);
+            itemData.setUpdatedItem(updatedItem);
+            updates.add(itemData);
+        }
+
+        return updates;
+    }
+
+    /**
+     * 比较单个快照的版本指纹
+     *
+     * @param snapshot 槽位快照
+     * @return 替换物品，无需更新时返回快照中的物品
+     */
+    private ItemStack compare(SlotSnapshot snapshot) {
+        if (!plugin.getItemDetector().isOutdated(snapshot.item, snapshot.meta, snapshot.entry)) {
+            return snapshot.item;
+        }
+
+        return plugin.getItemDetector().createReplacement(snapshot.item, snapshot.meta, snapshot.entry);
+    }
+
+    /**
+     * 阶段三：在主线程中校验槽位并写入
+     *
+     * @param playerId 玩家UUID
+     * @param checked 检查的物品数量
+     * @param updates 需要写入的物品数据
+     * @param statistics 统计信息
+     */
+    private void apply(UUID playerId, int checked, List<MythicItemData> updates, BatchUpdateStatistics statistics) {
+        Player player = Bukkit.getPlayer(playerId);
+        if (player == null) {
+            return;
+        }
+
+        for (int i = updates.size(); i < checked; i++) {
+            statistics.incrementSkipped();
+        }
+
+        // 背包和末影箱各只写回一次
+        for (AbstractItemUpdater.UpdateResult result : itemUpdater.applyPlannedUpdates(updates, player)) {
+            if (result.isSuccess()) {
+                if (result.isSkipped()) {
+                    statistics.incrementSkipped();
+                } else {
+                    statistics.incrementUpdated();
+                }
+            } else {
+                statistics.incrementFailed();
+            }
+        }
+
+        statistics.incrementPlayersProcessed();
+    }
+
+    /**
+     * 回到玩家所属的线程执行（Bukkit下为主线程），插件已禁用或玩家已离线时直接结束
+     * 比较期间只保留玩家UUID，不持有玩家对象，回调时才按UUID查找
+     *
+     * @param playerId 玩家UUID
+     * @param task 任务
+     * @param done 需要结束的Future
+     */
+    private void runOnOwnerThread(UUID playerId, Runnable task, CompletableFuture<Void> done) {
+        if (!plugin.isEnabled()) {
+            done.complete(null);
+            return;
+        }
+
+        // 已退出的玩家直接视为完成
+        Player owner = Bukkit.getPlayer(playerId);
+        if (owner == null) {
+            done.complete(null);
+            return;
+        }
+
+        plugin.getExecutionBackend().runForEntity(owner, task, () -> done.complete(null), 0L);
+    }
+
+    /**
+     * 槽位快照
+     */
+    private static class SlotSnapshot {
+        private final ItemLocation location;
+        private final int slot;
+        private final String internalName;
+        private final ItemStack item;
+        private final ItemMeta meta;
+        private final ItemTemplateCache.TemplateEntry entry;
+
+        SlotSnapshot(ItemLocation location, int slot, String internalName, ItemStack item, ItemMeta meta,
+                     ItemTemplateCache.TemplateEntry entry) {
+            this.location = location;
+            this.slot = slot;
+            this.internalName = internalName;
+            this.item = item;
+            this.meta = meta;
+            this.entry = entry;
+        }
+    }
+}
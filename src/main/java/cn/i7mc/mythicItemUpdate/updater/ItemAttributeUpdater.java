@@ -1,16 +1,21 @@
 package cn.i7mc.mythicItemUpdate.updater;
 
 import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.data.ContainerItemData;
 import cn.i7mc.mythicItemUpdate.data.DroppedItemData;
 import cn.i7mc.mythicItemUpdate.data.MythicItemData;
 import cn.i7mc.mythicItemUpdate.util.Utils;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * 物品属性更新器
@@ -48,46 +53,237 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
     
     @Override
     public UpdateResult updateItem(MythicItemData itemData, Player player) {
-        return safeUpdate("更新物品: " + itemData.getInternalName(), () -> {
-
-            // 检查物品数据有效性
-            if (itemData == null || itemData.getOriginalItem() == null) {
-                return createFailureResult("物品数据无效", null);
+        return updateItem(itemData, player, null);
+    }
+    
+    /**
+     * 更新单个物品，复用本次更新中相同物品的计算结果
+     *
+     * @param itemData 物品数据
+     * @param player 玩家实例（可能为null，用于掉落物品等情况）
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 更新结果
+     */
+    public UpdateResult updateItem(MythicItemData itemData, Player player, UpdateMemo memo) {
+        return timedUpdate("更新物品: " + itemData.getInternalName(), itemData.getInternalName(), () -> {
+            UpdateResult planResult = planItem(itemData, memo);
+            return planResult != null ? planResult : applyUpdate(itemData, player);
+        });
+    }
+    
+    /**
+     * 批量更新同一玩家的物品
+     * 先计算所有物品的替换结果，再按背包和末影箱分组，在各自的一份内容快照上校验，
+     * 每个物品栏只调用一次setContents写回，服务端同步时只发送内容有变化的槽位
+     * 允许推迟时，某个物品超出时间预算后，已计算的物品照常写回，其余物品返回推迟结果，由调用方稍后重新处理；
+     * 不允许推迟时超时只记录到跟踪器，所有物品都在本次处理
+     *
+     * @param items 玩家的物品数据
+     * @param player 玩家实例
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @param allowDeferral 是否允许推迟，只有能重新执行的调用方（如调度器的工作单元）才应允许
+     * @return 与物品数据顺序一致的更新结果
+     */
+    public List<UpdateResult> updatePlayerItems(List<MythicItemData> items, Player player, UpdateMemo memo,
+                                                boolean allowDeferral) {
+        UpdateResult[] results = new UpdateResult[items.size()];
+        List<MythicItemData> planned = new ArrayList<>();
+        List<Integer> plannedIndexes = new ArrayList<>();
+        
+        boolean deadlineExceeded = false;
+        
+        for (int i = 0; i < items.size(); i++) {
+            MythicItemData itemData = items.get(i);
+            String internalName = itemData.getInternalName();
+            if (deadlineExceeded) {
+                results[i] = createDeferredResult("之前的物品超出时间预算，推迟处理");
+                continue;
             }
-
-            ItemStack originalItem = itemData.getOriginalItem();
-
-            // 检查是否需要更新
-            if (!needsUpdate(originalItem)) {
-                return createSkippedResult("物品无需更新");
+            if (isQuarantined(internalName)) {
+                results[i] = createQuarantinedResult(internalName);
+                continue;
             }
-
-            // 获取更新后的物品
-            ItemStack updatedItem = getUpdatedItem(originalItem);
-            if (updatedItem == null || updatedItem.equals(originalItem)) {
-                return createSkippedResult("物品更新后无变化");
+            
+            long startNanos = System.nanoTime();
+            results[i] = safeUpdate("更新物品: " + internalName, () -> planItem(itemData, memo));
+            deadlineExceeded = recordElapsed(internalName, startNanos) && allowDeferral;
+            if (results[i] == null) {
+                planned.add(itemData);
+                plannedIndexes.add(i);
             }
+        }
+        
+        List<UpdateResult> applied = applyPlannedUpdates(planned, player);
+        for (int i = 0; i < applied.size(); i++) {
+            results[plannedIndexes.get(i)] = applied.get(i);
+        }
+        
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * 计算单个物品的替换结果
+     *
+     * @param itemData 物品数据
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 无需写入时的结果；需要写入时设置更新后的物品并返回null
+     */
+    private UpdateResult planItem(MythicItemData itemData, UpdateMemo memo) {
+        // 检查物品数据有效性
+        if (itemData == null || itemData.getOriginalItem() == null) {
+            return createFailureResult("物品数据无效", null);
+        }
 
-            // 设置更新后的物品
-            itemData.setUpdatedItem(updatedItem);
+        ItemStack originalItem = itemData.getOriginalItem();
+
+        // 获取更新后的物品，无需更新时返回原物品
+        ItemStack updatedItem = getUpdatedItem(originalItem, memo);
+        if (updatedItem == null || updatedItem == originalItem) {
+            return createSkippedResult("物品无需更新");
+        }
+        if (updatedItem.equals(originalItem)) {
+            return createSkippedResult("物品更新后无变化");
+        }
 
-            // 根据位置类型执行不同的更新逻辑
-            switch (itemData.getLocation()) {
-                case INVENTORY:
-                    return updateInventoryItem(itemData, player);
-                case ENDERCHEST:
-                    return updateEnderChestItem(itemData, player);
-                case CONTAINER:
-                    return updateContainerItem(itemData);
-                default:
-                    return createFailureResult("未知的物品位置类型", null);
+        // 设置更新后的物品
+        itemData.setUpdatedItem(updatedItem);
+        return null;
+    }
+    
+    /**
+     * 写入已计算好的更新结果
+     * 用于在其他线程中完成比较的物品，写入前会校验槽位内容未改变
+     *
+     * @param itemData 已设置更新后物品的物品数据
+     * @param player 玩家实例（可能为null，用于容器物品等情况）
+     * @return 更新结果
+     */
+    public UpdateResult applyPlannedUpdate(MythicItemData itemData, Player player) {
+        return safeUpdate("写入物品: " + itemData.getInternalName(), () -> {
+            if (itemData.getOriginalItem() == null || itemData.getUpdatedItem() == null) {
+                return createFailureResult("物品数据无效", null);
             }
+
+            return applyUpdate(itemData, player);
         });
     }
     
+    /**
+     * 批量写入同一玩家已计算好的更新结果
+     * 背包和末影箱各读取一次内容快照，在快照上校验并替换后各用一次setContents写回
+     *
+     * @param planned 已设置更新后物品的物品数据
+     * @param player 玩家实例
+     * @return 与物品数据顺序一致的更新结果
+     */
+    public List<UpdateResult> applyPlannedUpdates(List<MythicItemData> planned, Player player) {
+        List<UpdateResult> results = new ArrayList<>(planned.size());
+        if (planned.isEmpty()) {
+            return results;
+        }
+        
+        if (player == null || !player.isOnline()) {
+            for (int i = 0; i < planned.size(); i++) {
+                results.add(createFailureResult("玩家不在线", null));
+            }
+            return results;
+        }
+        
+        ContentsBatch inventory = new ContentsBatch(player.getInventory(), "背包");
+        ContentsBatch enderChest = new ContentsBatch(player.getEnderChest(), "末影箱");
+        
+        try {
+            for (MythicItemData itemData : planned) {
+                results.add(safeUpdate("写入物品: " + itemData.getInternalName(), () -> {
+                    if (itemData.getOriginalItem() == null || itemData.getUpdatedItem() == null) {
+                        return createFailureResult("物品数据无效", null);
+                    }
+                    
+                    switch (itemData.getLocation()) {
+                        case INVENTORY:
+                            return replaceInContents(itemData, inventory);
+                        case ENDERCHEST:
+                            return replaceInContents(itemData, enderChest);
+                        case CONTAINER:
+                            return updateContainerItem(itemData);
+                        default:
+                            return createFailureResult("未知的物品位置类型", null);
+                    }
+                }));
+            }
+            
+            inventory.commit();
+            enderChest.commit();
+            
+        } catch (Exception e) {
+            handleError("写入玩家物品失败: " + player.getName(), e);
+            while (results.size() < planned.size()) {
+                results.add(createFailureResult("写入玩家物品时发生异常: " + e.getMessage(), e));
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 在物品栏内容快照中替换单个物品
+     *
+     * @param itemData 已设置更新后物品的物品数据
+     * @param batch 物品栏内容快照
+     * @return 更新结果
+     */
+    private UpdateResult replaceInContents(MythicItemData itemData, ContentsBatch batch) {
+        ItemStack[] contents = batch.getContents();
+        int slot = itemData.getSlot();
+        if (slot < 0 || slot >= contents.length) {
+            return createFailureResult(batch.label + "槽位索引超出范围: " + slot, null);
+        }
+        
+        // 验证快照中的物品是否仍然是原始物品
+        ItemStack currentItem = contents[slot];
+        if (!Utils.isValidItem(currentItem) || !currentItem.equals(itemData.getOriginalItem())) {
+            return createFailureResult(batch.label + "物品验证失败，槽位内容已改变", null);
+        }
+        
+        contents[slot] = itemData.getUpdatedItem();
+        batch.changed = true;
+        return createSuccessResult(batch.label + "物品更新成功");
+    }
+    
+    /**
+     * 根据位置类型执行不同的更新逻辑
+     *
+     * @param itemData 物品数据
+     * @param player 玩家实例
+     * @return 更新结果
+     */
+    private UpdateResult applyUpdate(MythicItemData itemData, Player player) {
+        switch (itemData.getLocation()) {
+            case INVENTORY:
+                return updateInventoryItem(itemData, player);
+            case ENDERCHEST:
+                return updateEnderChestItem(itemData, player);
+            case CONTAINER:
+                return updateContainerItem(itemData);
+            default:
+                return createFailureResult("未知的物品位置类型", null);
+        }
+    }
+    
     @Override
     public UpdateResult updateDroppedItem(DroppedItemData droppedData) {
-        return safeUpdate("更新掉落物品: " + droppedData.getInternalName(), () -> {
+        return updateDroppedItem(droppedData, null);
+    }
+    
+    /**
+     * 更新掉落物品，复用本次更新中相同物品的计算结果
+     *
+     * @param droppedData 掉落物品数据
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 更新结果
+     */
+    public UpdateResult updateDroppedItem(DroppedItemData droppedData, UpdateMemo memo) {
+        return timedUpdate("更新掉落物品: " + droppedData.getInternalName(), droppedData.getInternalName(), () -> {
 
             // 检查掉落物品数据有效性
             if (droppedData == null || droppedData.getOriginalItem() == null) {
@@ -96,14 +292,12 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
 
             ItemStack originalItem = droppedData.getOriginalItem();
 
-            // 检查是否需要更新
-            if (!needsUpdate(originalItem)) {
+            // 获取更新后的物品，无需更新时返回原物品
+            ItemStack updatedItem = getUpdatedItem(originalItem, memo);
+            if (updatedItem == null || updatedItem == originalItem) {
                 return createSkippedResult("掉落物品无需更新");
             }
-
-            // 获取更新后的物品
-            ItemStack updatedItem = getUpdatedItem(originalItem);
-            if (updatedItem == null || updatedItem.equals(originalItem)) {
+            if (updatedItem.equals(originalItem)) {
                 return createSkippedResult("掉落物品更新后无变化");
             }
 
@@ -150,7 +344,6 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
             // 直接在主线程中同步更新玩家背包中的物品
             player.getInventory().setItem(slot, updatedItem);
 
-
             return createSuccessResult("背包物品更新成功");
 
         } catch (Exception e) {
@@ -193,7 +386,6 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
             // 直接在主线程中同步更新玩家末影箱中的物品
             player.getEnderChest().setItem(slot, updatedItem);
 
-
             return createSuccessResult("末影箱物品更新成功");
 
         } catch (Exception e) {
@@ -203,18 +395,112 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
     
     /**
      * 更新容器中的物品
+     * 容器物品没有所属容器的位置信息，只能通过updateContainer整体更新
      * 
      * @param itemData 物品数据
      * @return 更新结果
      */
     private UpdateResult updateContainerItem(MythicItemData itemData) {
+        return createFailureResult("容器物品需要按容器整体更新", null);
+    }
+    
+    @Override
+    public List<UpdateResult> updateContainer(ContainerItemData containerData) {
+        return updateContainer(containerData, null);
+    }
+    
+    /**
+     * 更新容器中的所有物品，复用本次更新中相同物品的计算结果
+     * 
+     * @param containerData 容器数据
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 每个物品的更新结果
+     */
+    public List<UpdateResult> updateContainer(ContainerItemData containerData, UpdateMemo memo) {
+        List<UpdateResult> results = new ArrayList<>();
+        List<MythicItemData> items = containerData.getItems();
+        
         try {
-            // 直接在主线程中同步处理容器物品更新
-            return createSuccessResult("容器物品更新成功");
+            Inventory inventory = getContainerInventory(containerData.getLocation());
+            if (inventory == null) {
+                for (int i = 0; i < items.size(); i++) {
+                    results.add(createFailureResult("容器不存在或所在区块未加载", null));
+                }
+                return results;
+            }
+            
+            // 读取一次内容，在数组上替换后一次性写回
+            ItemStack[] contents = inventory.getContents();
+            boolean changed = false;
+            
+            for (MythicItemData itemData : items) {
+                UpdateResult result = timedUpdate("更新容器物品: " + itemData.getInternalName(),
+                    itemData.getInternalName(), () -> replaceContainerItem(itemData, contents, memo));
+                if (result.isSuccess() && !result.isSkipped()) {
+                    changed = true;
+                }
+                results.add(result);
+            }
+            
+            if (changed) {
+                inventory.setContents(contents);
+            }
             
         } catch (Exception e) {
-            return createFailureResult("更新容器物品时发生异常: " + e.getMessage(), e);
+            handleError("更新容器失败: " + containerData.getLocation(), e);
+            while (results.size() < items.size()) {
+                results.add(createFailureResult("更新容器时发生异常: " + e.getMessage(), e));
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * 在容器内容数组中替换单个物品
+     * 
+     * @param itemData 物品数据
+     * @param contents 容器内容数组
+     * @param memo 本次更新的备忘录，为null时不复用
+     * @return 更新结果
+     */
+    private UpdateResult replaceContainerItem(MythicItemData itemData, ItemStack[] contents, UpdateMemo memo) {
+        int slot = itemData.getSlot();
+        if (slot < 0 || slot >= contents.length) {
+            return createFailureResult("容器槽位索引超出范围: " + slot, null);
+        }
+        
+        // 验证当前槽位的物品是否仍然是原始物品
+        ItemStack currentItem = contents[slot];
+        if (!Utils.isValidItem(currentItem) || !currentItem.equals(itemData.getOriginalItem())) {
+            return createFailureResult("容器物品验证失败，槽位内容已改变", null);
+        }
+        
+        ItemStack updatedItem = getUpdatedItem(currentItem, memo);
+        if (updatedItem == null || updatedItem == currentItem) {
+            return createSkippedResult("容器物品无需更新");
+        }
+        if (updatedItem.equals(currentItem)) {
+            return createSkippedResult("容器物品更新后无变化");
         }
+        
+        itemData.setUpdatedItem(updatedItem);
+        contents[slot] = updatedItem;
+        return createSuccessResult("容器物品更新成功");
+    }
+    
+    /**
+     * 获取指定位置容器的实时物品栏
+     * 
+     * @param location 容器位置
+     * @return 物品栏，如果区块未加载或方块不是容器则返回null
+     */
+    private Inventory getContainerInventory(Location location) {
+        if (location == null || location.getWorld() == null || !location.isChunkLoaded()) {
+            return null;
+        }
+        
+        return Utils.getBlockInventory(location.getBlock().getState(false));
     }
     
     /**
@@ -299,4 +585,32 @@ public class ItemAttributeUpdater extends AbstractItemUpdater {
             return createSuccessResult("玩家末影箱槽位更新成功");
         });
     }
+    
+    /**
+     * 物品栏内容快照，第一次使用时读取，有替换时一次性写回
+     */
+    private static final class ContentsBatch {
+        private final Inventory inventory;
+        private final String label;
+        private ItemStack[] contents;
+        private boolean changed;
+        
+        private ContentsBatch(Inventory inventory, String label) {
+            this.inventory = inventory;
+            this.label = label;
+        }
+        
+        private ItemStack[] getContents() {
+            if (contents == null) {
+                contents = inventory.getContents();
+            }
+            return contents;
+        }
+        
+        private void commit() {
+            if (changed) {
+                inventory.setContents(contents);
+            }
+        }
+    }
 }
@@ -0,0 +1,433 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateStatistics;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDetector;
+import cn.i7mc.mythicItemUpdate.mythic.ItemTemplateCache;
+import cn.i7mc.mythicItemUpdate.util.NbtIO;
+import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 离线玩家数据更新器
+ * 逐个读取world/playerdata下的玩家数据文件，只解码背包和末影箱列表，
+ * 替换其中过期的MythicMobs物品后通过临时文件原子替换原文件
+ * 文件在有界线程池中并行处理，在线玩家的文件会被跳过
+ * 玩家从登录前到退出保存完成期间占用自己的数据文件，写回与占用互斥，不会覆盖服务器保存的数据
+ * 后台线程只根据PDC类型标记识别MythicMobs物品，只有NBT标记的旧版本物品留到玩家上线后更新
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class OfflinePlayerUpdater {
+
+    private static final String INVENTORY_KEY = "Inventory";
+    private static final String ENDER_ITEMS_KEY = "EnderItems";
+    private static final String DATA_VERSION_KEY = "DataVersion";
+    private static final String SLOT_KEY = "Slot";
+    private static final Set<String> DECODE_KEYS = new HashSet<>(Arrays.asList(
+        INVENTORY_KEY, ENDER_ITEMS_KEY, DATA_VERSION_KEY));
+
+    // 玩家数据文件锁的分段数量
+    private static final int LOCK_STRIPES = 64;
+
+    // 玩家退出后继续占用数据文件的时间（tick），服务器在退出事件之后才保存玩家数据
+    private static final long RELEASE_DELAY_TICKS = 20L;
+
+    private final MythicItemUpdate plugin;
+    private final int threads;
+    private final Object[] fileLocks;
+    private final Map<UUID, Integer> claimedPlayers;
+    private volatile boolean running;
+    private volatile boolean cancelled;
+    private ExecutorService workers;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param threads 并行处理的线程数量
+     */
+    public OfflinePlayerUpdater(MythicItemUpdate plugin, int threads) {
+        this.plugin = plugin;
+        this.threads = threads;
+        this.fileLocks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            fileLocks[i] = new Object();
+        }
+        this.claimedPlayers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 在后台开始更新离线玩家数据
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @return 是否成功开始（已有更新进行中时返回false）
+     */
+    public boolean start(Set<String> internalNames) {
+        return start(internalNames, null);
+    }
+
+    /**
+     * 在后台开始更新离线玩家数据
+     *
+     * @param internalNames 需要更新的内部名称集合，为null时更新全部
+     * @param onFinish 更新结束（包括被取消）后在后台线程调用的回调，可以为null
+     * @return 是否成功开始（已有更新进行中时返回false）
+     */
+    public synchronized boolean start(Set<String> internalNames, Runnable onFinish) {
+        if (running) {
+            return false;
+        }
+
+        List<World> worlds = Bukkit.getWorlds();
+        if (worlds.isEmpty()) {
+            return false;
+        }
+
+        Path directory = worlds.get(0).getWorldFolder().toPath().resolve("playerdata");
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+
+        // 文件中的物品数据版本必须与服务器一致，否则写回的新格式物品会被再次升级
+        int dataVersion = Bukkit.getUnsafe().getDataVersion();
+
+        running = true;
+        cancelled = false;
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MythicItemUpdate-Offline-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread coordinator = new Thread(() -> run(directory, dataVersion, internalNames, onFinish), "MythicItemUpdate-Offline");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return true;
+    }
+
+    /**
+     * 取消正在进行的更新，已在写入的文件会完成写入
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * 占用玩家的数据文件，在玩家登录前（异步登录线程）调用
+     * 正在写回该玩家的文件时阻塞到写回结束，此后的写回都会被放弃，直到释放
+     *
+     * @param playerId 玩家UUID
+     */
+    public void claimPlayer(UUID playerId) {
+        synchronized (lockOf(playerId)) {
+            claimedPlayers.merge(playerId, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 释放玩家的数据文件
+     * 玩家退出时延迟释放，覆盖服务器在退出事件之后保存数据的过程；登录被拒绝时立即释放
+     *
+     * @param playerId 玩家UUID
+     * @param delayed 是否延迟释放
+     */
+    public void releasePlayer(UUID playerId, boolean delayed) {
+        if (delayed) {
+            plugin.getExecutionBackend().runLater(() -> releasePlayer(playerId, false), RELEASE_DELAY_TICKS);
+            return;
+        }
+
+        claimedPlayers.computeIfPresent(playerId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 检查是否正在更新
+     *
+     * @return 是否正在更新
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 遍历玩家数据目录，逐个提交文件，同时在途的文件数不超过线程数的两倍
+     *
+     * @param directory 玩家数据目录
+     * @param dataVersion 服务器数据版本
+     * @param internalNames 需要更新的内部名称集合
+     * @param onFinish 结束回调，可以为null
+     */
+    private void run(Path directory, int dataVersion, Set<String> internalNames, Runnable onFinish) {
+        long startTime = System.currentTimeMillis();
+        BatchUpdateStatistics statistics = new BatchUpdateStatistics();
+        int permits = threads * 2;
+        Semaphore inFlight = new Semaphore(permits);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.dat")) {
+            for (Path file : files) {
+                if (cancelled) {
+                    break;
+                }
+
+                inFlight.acquire();
+                try {
+                    workers.execute(() -> {
+                        try {
+                            processFile(file, dataVersion, internalNames, statistics);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } catch (Exception e) {
+                    inFlight.release();
+                    break;
+                }
+            }
+
+            // 等待所有已提交的文件处理完成
+            inFlight.acquire(permits);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            plugin.getLogger().warning("[OfflinePlayerUpdater] 遍历玩家数据失败: " + e.getMessage());
+        } finally {
+            workers.shutdown();
+            running = false;
+        }
+
+        if (plugin.getConfigManager().getConfigValue("logging.log-statistics", true)) {
+            plugin.getLogger().info(String.format("[OfflinePlayerUpdater] 离线玩家更新%s: %s，耗时 %s",
+                cancelled ? "已取消" : "结束", statistics, Utils.formatTime(System.currentTimeMillis() - startTime)));
+        }
+
+        if (onFinish != null) {
+            onFinish.run();
+        }
+    }
+
+    /**
+     * 处理单个玩家数据文件
+     *
+     * @param file 玩家数据文件
+     * @param dataVersion 服务器数据版本
+     * @param internalNames 需要更新的内部名称集合
+     * @param statistics 统计信息
+     */
+    private void processFile(Path file, int dataVersion, Set<String> internalNames, BatchUpdateStatistics statistics) {
+        UUID playerId = parsePlayerId(file);
+        if (playerId == null || cancelled || isClaimed(playerId)) {
+            return;
+        }
+
+        try {
+            FileTime lastModified = Files.getLastModifiedTime(file);
+            NbtIO.Compound root;
+            try (InputStream in = Files.newInputStream(file)) {
+                root = NbtIO.readCompressed(in, DECODE_KEYS);
+            }
+
+            if (root.getInt(DATA_VERSION_KEY, -1) != dataVersion) {
+                return;
+            }
+
+            FileResult result = new FileResult();
+            if (plugin.getConfigManager().isUpdateInventoryEnabled()) {
+                updateItemList(root.getList(INVENTORY_KEY), dataVersion, internalNames, result);
+            }
+            if (plugin.getConfigManager().isUpdateEnderChestEnabled()) {
+                updateItemList(root.getList(ENDER_ITEMS_KEY), dataVersion, internalNames, result);
+            }
+
+            if (result.updated > 0 && !writeBack(file, root, playerId, lastModified)) {
+                // 文件在处理期间被服务器改写，放弃本次修改，玩家加入时再更新
+                return;
+            }
+
+            for (int i = 0; i < result.updated; i++) {
+                statistics.incrementUpdated();
+            }
+            for (int i = 0; i < result.skipped; i++) {
+                statistics.incrementSkipped();
+            }
+            for (int i = 0; i < result.failed; i++) {
+                statistics.incrementFailed();
+            }
+            statistics.incrementPlayersProcessed();
+
+        } catch (Exception e) {
+            plugin.getLogger().warning(String.format("[OfflinePlayerUpdater] 处理玩家数据失败 (%s): %s",
+                file.getFileName(), e.getMessage()));
+        }
+    }
+
+    /**
+     * 更新物品列表中过期的MythicMobs物品
+     *
+     * @param items 物品列表
+     * @param dataVersion 数据版本
+     * @param internalNames 需要更新的内部名称集合
+     * @param result 文件处理结果
+     */
+    private void updateItemList(NbtIO.ListTag items, int dataVersion, Set<String> internalNames, FileResult result) {
+        if (items == null || items.getElementType() != NbtIO.TAG_COMPOUND) {
+            return;
+        }
+
+        ItemDetector detector = plugin.getItemDetector();
+        for (int i = 0; i < items.size(); i++) {
+            NbtIO.Compound itemTag = (NbtIO.Compound) items.get(i);
+            try {
+                // 物品序列化格式不含槽位，但需要数据版本
+                NbtIO.Compound stackTag = new NbtIO.Compound();
+                copyWithout(itemTag, stackTag);
+                stackTag.put(DATA_VERSION_KEY, NbtIO.TAG_INT, dataVersion);
+
+                ItemStack item = ItemStack.deserializeBytes(NbtIO.writeCompressed(stackTag));
+                if (!Utils.isValidItem(item) || !item.hasItemMeta()) {
+                    continue;
+                }
+
+                // 后台线程不能调用MythicMobs API，只认PDC类型标记
+                ItemMeta meta = item.getItemMeta();
+                String internalName = detector.readMythicTypeTag(meta);
+                if (internalName == null || (internalNames != null && !internalNames.contains(internalName))) {
+                    continue;
+                }
+
+                // 模板只在主线程生成，这里只读取已缓存的模板
+                ItemTemplateCache.TemplateEntry entry = detector.getTemplateCache().peekEntry(internalName);
+                if (entry == null || !detector.isOutdated(item, meta, entry)) {
+                    result.skipped++;
+                    continue;
+                }
+
+                ItemStack updatedItem = detector.createReplacement(item, meta, entry);
+
+                NbtIO.Compound updatedTag = NbtIO.readCompressed(updatedItem.serializeAsBytes());
+                updatedTag.remove(DATA_VERSION_KEY);
+                itemTag.copyTo(SLOT_KEY, updatedTag);
+                items.set(i, updatedTag);
+                result.updated++;
+
+            } catch (Exception e) {
+                result.failed++;
+            }
+        }
+    }
+
+    /**
+     * 通过临时文件原子替换玩家数据文件
+     * 替换前在文件锁内再次确认玩家未占用文件、文件未被服务器改写，检查和替换之间玩家无法登录
+     *
+     * @param file 玩家数据文件
+     * @param root 根复合标签
+     * @param playerId 玩家UUID
+     * @param lastModified 读取时文件的修改时间
+     * @return 是否写入成功
+     */
+    private boolean writeBack(Path file, NbtIO.Compound root, UUID playerId, FileTime lastModified) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".miu.tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            NbtIO.writeCompressed(root, out);
+        }
+
+        synchronized (lockOf(playerId)) {
+            if (isClaimed(playerId) || !lastModified.equals(Files.getLastModifiedTime(file))) {
+                Files.deleteIfExists(temp);
+                return false;
+            }
+
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        }
+    }
+
+    /**
+     * 检查玩家的数据文件是否被占用
+     * 插件启用前已在线的玩家没有占用记录，同时检查是否在线
+     *
+     * @param playerId 玩家UUID
+     * @return 是否被占用
+     */
+    private boolean isClaimed(UUID playerId) {
+        return claimedPlayers.containsKey(playerId) || Bukkit.getPlayer(playerId) != null;
+    }
+
+    /**
+     * 获取玩家数据文件对应的锁
+     *
+     * @param playerId 玩家UUID
+     * @return 锁对象
+     */
+    private Object lockOf(UUID playerId) {
+        return fileLocks[(playerId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    /**
+     * 复制物品标签中除槽位以外的所有条目
+     *
+     * @param source 源标签
+     * @param target 目标标签
+     */
+    private void copyWithout(NbtIO.Compound source, NbtIO.Compound target) {
+        for (String name : source.names()) {
+            if (!SLOT_KEY.equals(name)) {
+                source.copyTo(name, target);
+            }
+        }
+    }
+
+    /**
+     * 从文件名解析玩家UUID
+     *
+     * @param file 玩家数据文件
+     * @return 玩家UUID，文件名无效时返回null
+     */
+    private UUID parsePlayerId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return UUID.fromString(name.substring(0, name.length() - ".dat".length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个文件的处理结果
+     */
+    private static class FileResult {
+        private int updated;
+        private int skipped;
+        private int failed;
+    }
+}
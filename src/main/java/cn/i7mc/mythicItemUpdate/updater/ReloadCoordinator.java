@@ -0,0 +1,311 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import cn.i7mc.mythicItemUpdate.mythic.ItemTemplateCache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 重载协调器
+ * 所有MythicMobs重载入口都经过这里：同一次重载事件被多个监听器收到时只处理一次，
+ * 每次重载分配一个递增的代次，每个代次最多执行一次全局更新
+ * 上一次全局更新尚未结束时又发生了带有变化的重载，会取消正在进行的更新，
+ * 以两次重载变化的并集重新开始，已更新的物品版本一致会被直接跳过
+ * 重载后等待一段静默时间再开始更新，连续的多次重载合并为一次针对最终定义的更新，
+ * 从第一次重载起等待的时间不超过配置的上限
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class ReloadCoordinator {
+
+    private final MythicItemUpdate plugin;
+    private final BatchUpdateManager batchUpdateManager;
+
+    // 尚未完成更新的变化，pendingAll为true时表示需要更新全部定义
+    private final Set<String> pendingNames;
+    private boolean pendingAll;
+    private final Set<String> pendingOfflineNames;
+    private boolean pendingOfflineAll;
+
+    private Object lastSource;
+    private long generation;
+    private long passGeneration;
+    private boolean offlineInFlight;
+    private boolean offlineRestart;
+    private boolean stopped;
+
+    // 静默期计时，只在等待期间运行
+    private ExecutionBackend.TaskHandle debounceTask;
+    private long ticksSinceFirst;
+    private long ticksSinceLast;
+    private int coalescedReloads;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param batchUpdateManager 批量更新管理器
+     */
+    public ReloadCoordinator(MythicItemUpdate plugin, BatchUpdateManager batchUpdateManager) {
+        this.plugin = plugin;
+        this.batchUpdateManager = batchUpdateManager;
+        this.pendingNames = new HashSet<>();
+        this.pendingOfflineNames = new HashSet<>();
+    }
+
+    /**
+     * 处理一次MythicMobs重载
+     * 先重载物品检测器，启用自动更新时记录变化并在静默期结束后开始（或重新开始）全局更新
+     *
+     * @param source 重载来源（通常是重载事件），同一来源重复提交时忽略
+     * @return 是否作为新的重载处理
+     */
+    public synchronized boolean handleReload(Object source) {
+        if (stopped || (source != null && source == lastSource)) {
+            return false;
+        }
+        lastSource = source;
+        generation++;
+
+        // 无论是否自动更新，旧的物品模板都已失效，先重载物品检测器
+        if (!plugin.getItemDetector().reload()) {
+            plugin.getLogger().warning("[ReloadCoordinator] 重载物品检测器失败");
+            return true;
+        }
+
+        if (!plugin.getConfigManager().isAutoUpdateEnabled()) {
+            return true;
+        }
+
+        if (!plugin.getItemDetector().isMythicAvailable()) {
+            plugin.getLogger().warning("[ReloadCoordinator] MythicMobs不可用，无法执行物品更新");
+            return true;
+        }
+
+        if (collectChanges()) {
+            debounce();
+        }
+        return true;
+    }
+
+    /**
+     * 立即为最近一次重载中发生变化的物品定义安排全局更新，不经过静默期
+     * 已有本协调器发起的更新在进行时取消并以变化的并集重新开始
+     */
+    public synchronized void schedulePass() {
+        if (stopped || !collectChanges()) {
+            return;
+        }
+
+        coalescedReloads = 0;
+        cancelDebounce();
+        startPasses();
+    }
+
+    /**
+     * 停止协调，不再开始新的更新
+     */
+    public synchronized void shutdown() {
+        stopped = true;
+        cancelDebounce();
+        pendingNames.clear();
+        pendingOfflineNames.clear();
+    }
+
+    /**
+     * 获取当前的重载代次
+     *
+     * @return 重载代次
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 检查是否有重载正在静默期中等待
+     *
+     * @return 是否在等待
+     */
+    public synchronized boolean isDebouncing() {
+        return debounceTask != null;
+    }
+
+    /**
+     * 将最近一次重载中的变化并入待更新集合
+     *
+     * @return 是否有变化
+     */
+    private boolean collectChanges() {
+        ItemTemplateCache templateCache = plugin.getItemDetector().getTemplateCache();
+        if (!templateCache.hasChanges()) {
+            plugin.getLogger().info("[ReloadCoordinator] 物品定义没有变化，跳过全局更新");
+            return false;
+        }
+
+        Set<String> changed = templateCache.getChangedNames();
+        if (changed == null) {
+            pendingAll = true;
+            pendingOfflineAll = true;
+        } else {
+            pendingNames.addAll(changed);
+            pendingOfflineNames.addAll(changed);
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次带有变化的重载，静默期为0时立即开始更新，否则（重新）开始计时
+     */
+    private void debounce() {
+        coalescedReloads++;
+        ticksSinceLast = 0L;
+
+        if (plugin.getConfigManager().getReloadQuietPeriod() <= 0L) {
+            flush();
+            return;
+        }
+
+        if (debounceTask == null) {
+            ticksSinceFirst = 0L;
+            debounceTask = plugin.getExecutionBackend().runTimer(this::tickDebounce, 1L, 1L);
+        }
+    }
+
+    /**
+     * 静默期计时，静默期结束或达到最长等待时间时开始更新
+     */
+    private synchronized void tickDebounce() {
+        if (debounceTask == null) {
+            return;
+        }
+
+        ticksSinceFirst++;
+        ticksSinceLast++;
+        if (ticksSinceLast >= plugin.getConfigManager().getReloadQuietPeriod()
+            || ticksSinceFirst >= plugin.getConfigManager().getReloadMaxDelay()) {
+            flush();
+        }
+    }
+
+    /**
+     * 结束等待并开始更新
+     */
+    private void flush() {
+        cancelDebounce();
+
+        if (coalescedReloads > 1) {
+            plugin.getLogger().info(String.format("[ReloadCoordinator] 已合并 %d 次重载，开始全局更新", coalescedReloads));
+        }
+        coalescedReloads = 0;
+
+        startPasses();
+    }
+
+    /**
+     * 停止静默期计时
+     */
+    private void cancelDebounce() {
+        if (debounceTask != null) {
+            debounceTask.cancel();
+            debounceTask = null;
+        }
+    }
+
+    /**
+     * 以待更新集合开始在线和离线更新
+     */
+    private void startPasses() {
+        startOnlinePass();
+        if (plugin.getConfigManager().isUpdateOfflinePlayersEnabled()) {
+            startOfflinePass();
+        }
+    }
+
+    /**
+     * 开始在线更新，本协调器发起的旧更新仍在进行时先取消
+     */
+    private void startOnlinePass() {
+        if (passGeneration != 0L && batchUpdateManager.isUpdateInProgress()) {
+            plugin.getLogger().info("[ReloadCoordinator] 检测到新的重载，重新开始全局更新");
+            batchUpdateManager.cancelScheduledUpdate();
+        }
+
+        long pass = generation;
+        passGeneration = pass;
+        if (!batchUpdateManager.startScheduledUpdate(snapshot(pendingNames, pendingAll),
+                result -> onOnlinePassComplete(pass))) {
+            passGeneration = 0L;
+            plugin.getLogger().warning("[ReloadCoordinator] 全局物品更新失败: 更新已在进行中");
+        }
+    }
+
+    /**
+     * 在线更新结束，只有最新代次的更新结束时才清除待更新的变化
+     *
+     * @param pass 更新所属的代次
+     */
+    private synchronized void onOnlinePassComplete(long pass) {
+        if (pass != passGeneration) {
+            return;
+        }
+        passGeneration = 0L;
+        pendingNames.clear();
+        pendingAll = false;
+    }
+
+    /**
+     * 开始离线玩家更新
+     * 离线更新只能等后台线程退出后才能重新开始，取消后在结束回调中重新开始
+     */
+    private void startOfflinePass() {
+        OfflinePlayerUpdater offlineUpdater = batchUpdateManager.getOfflinePlayerUpdater();
+        if (offlineUpdater == null) {
+            return;
+        }
+
+        if (offlineInFlight) {
+            offlineRestart = true;
+            offlineUpdater.cancel();
+            return;
+        }
+
+        offlineInFlight = offlineUpdater.start(snapshot(pendingOfflineNames, pendingOfflineAll),
+            this::onOfflinePassComplete);
+        if (!offlineInFlight) {
+            plugin.getLogger().warning("[ReloadCoordinator] 离线玩家更新未开始: 更新已在进行中或找不到玩家数据目录");
+        }
+    }
+
+    /**
+     * 离线更新结束（包括被取消），被新的重载取消时立即重新开始
+     */
+    private synchronized void onOfflinePassComplete() {
+        offlineInFlight = false;
+        if (stopped) {
+            return;
+        }
+
+        if (offlineRestart) {
+            offlineRestart = false;
+            startOfflinePass();
+            return;
+        }
+
+        pendingOfflineNames.clear();
+        pendingOfflineAll = false;
+    }
+
+    /**
+     * 复制待更新的变化，供一次更新使用
+     *
+     * @param names 变化的内部名称
+     * @param all 是否需要更新全部定义
+     * @return 内部名称集合，需要更新全部时返回null
+     */
+    private Set<String> snapshot(Set<String> names, boolean all) {
+        return all ? null : new HashSet<>(names);
+    }
+}
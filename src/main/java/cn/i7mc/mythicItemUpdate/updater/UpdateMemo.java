@@ -0,0 +1,122 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateStatistics;
+import cn.i7mc.mythicItemUpdate.util.Utils;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * 单次全局更新内的替换结果备忘录
+ * 以原物品序列化数据的64位哈希和数量为键记录计算出的替换物品，
+ * 同一次更新中再次遇到完全相同的物品时直接复用结果，不再重复比较和复制模板
+ * 键只包含两个数值，不复制原物品，也不调用ItemStack的equals和hashCode（会复制元数据）
+ * 只在创建时的模板代次内有效，重载后自动失效
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class UpdateMemo {
+
+    // 单次更新最多记录的不同物品数量
+    private static final int MAX_ENTRIES = 4096;
+
+    // 表示物品无需更新的标记
+    private static final Object UNCHANGED = new Object();
+
+    private final Map<MemoKey, Object> replacements;
+    private final BatchUpdateStatistics statistics;
+    private final int generation;
+
+    /**
+     * 构造函数
+     *
+     * @param statistics 本次更新的统计信息，用于记录备忘录命中情况
+     * @param generation 创建时的模板代次
+     */
+    public UpdateMemo(BatchUpdateStatistics statistics, int generation) {
+        this.replacements = new ConcurrentHashMap<>();
+        this.statistics = statistics;
+        this.generation = generation;
+    }
+
+    /**
+     * 获取原物品的替换物品，命中时直接返回记录的结果
+     * 返回的替换物品可能被多个槽位共享，调用方只能读取或写入物品栏，不得修改
+     *
+     * @param original 原物品
+     * @param currentGeneration 当前的模板代次
+     * @param compute 未命中时计算替换物品的方法，无需更新时返回原物品
+     * @return 替换物品，无需更新时返回原物品，计算失败时返回null
+     */
+    public ItemStack getUpdatedItem(ItemStack original, int currentGeneration, UnaryOperator<ItemStack> compute) {
+        if (original == null || original.getType().isAir() || currentGeneration != generation) {
+            return compute.apply(original);
+        }
+
+        MemoKey key = new MemoKey(Utils.hash64(original.serializeAsBytes()), original.getAmount());
+        Object cached = replacements.get(key);
+        if (cached != null) {
+            statistics.incrementMemoHits();
+            return cached == UNCHANGED ? original : (ItemStack) cached;
+        }
+
+        statistics.incrementMemoMisses();
+        ItemStack updated = compute.apply(original);
+        if (updated != null && replacements.size() < MAX_ENTRIES) {
+            replacements.putIfAbsent(key, updated == original ? UNCHANGED : updated);
+        }
+        return updated;
+    }
+
+    /**
+     * 检查备忘录是否属于指定的统计信息（即同一次更新）
+     *
+     * @param passStatistics 统计信息
+     * @return 是否属于
+     */
+    public boolean belongsTo(BatchUpdateStatistics passStatistics) {
+        return statistics == passStatistics;
+    }
+
+    /**
+     * 获取已记录的不同物品数量
+     *
+     * @return 物品数量
+     */
+    public int size() {
+        return replacements.size();
+    }
+
+    /**
+     * 备忘录的键，由物品序列化数据的哈希和数量组成
+     */
+    private static final class MemoKey {
+        private final long contentHash;
+        private final int amount;
+
+        private MemoKey(long contentHash, int amount) {
+            this.contentHash = contentHash;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MemoKey)) {
+                return false;
+            }
+            MemoKey other = (MemoKey) obj;
+            return contentHash == other.contentHash && amount == other.amount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(contentHash) * 31 + amount;
+        }
+    }
+}
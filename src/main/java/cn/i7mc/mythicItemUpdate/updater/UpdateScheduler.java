@@ -0,0 +1,412 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateResult;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateStatistics;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 分时更新调度器
+ * 将全局更新拆分为工作单元，在每tick的时间预算内逐个执行
+ * 区域化后端下工作单元被分发到所属实体或区块的线程上并行执行
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public class UpdateScheduler {
+
+    // 区域化调度时同时在途的工作单元上限
+    private static final int MAX_DISPATCHED_UNITS = 256;
+
+    // 单个工作单元因超出时间预算被推迟的最多次数
+    private static final int MAX_UNIT_ATTEMPTS = 3;
+
+    private final MythicItemUpdate plugin;
+    private final AtomicInteger completedUnits;
+    private final AtomicInteger totalUnits;
+    private final Runnable progressListener;
+    private final Deque<WorkUnit> queue;
+    private final Queue<WorkUnit> requeued;
+    private ExecutionBackend.TaskHandle task;
+    private BatchUpdateStatistics statistics;
+    private Consumer<BatchUpdateResult> completionHandler;
+    private AtomicInteger pendingAsync;
+    private long passStartTime;
+    private String abortMessage;
+
+    /**
+     * 构造函数
+     *
+     * @param plugin 插件实例
+     * @param completedUnits 已完成工作单元计数
+     * @param totalUnits 工作单元总数计数
+     * @param progressListener 每tick处理结束后的进度回调
+     */
+    public UpdateScheduler(MythicItemUpdate plugin, AtomicInteger completedUnits, AtomicInteger totalUnits,
+                           Runnable progressListener) {
+        this.plugin = plugin;
+        this.completedUnits = completedUnits;
+        this.totalUnits = totalUnits;
+        this.progressListener = progressListener;
+        this.queue = new ArrayDeque<>();
+        this.requeued = new ConcurrentLinkedQueue<>();
+        this.pendingAsync = new AtomicInteger(0);
+    }
+
+    /**
+     * 开始一次分时更新
+     *
+     * @param units 工作单元列表
+     * @param onComplete 完成回调
+     * @return 是否成功开始（已有更新进行中时返回false）
+     */
+    public boolean start(List<WorkUnit> units, Consumer<BatchUpdateResult> onComplete) {
+        if (isRunning()) {
+            return false;
+        }
+
+        queue.clear();
+        requeued.clear();
+        queue.addAll(units);
+        statistics = new BatchUpdateStatistics();
+        completionHandler = onComplete;
+        pendingAsync = new AtomicInteger(0);
+        passStartTime = System.currentTimeMillis();
+        abortMessage = null;
+        completedUnits.set(0);
+        totalUnits.set(units.size());
+
+        task = plugin.getExecutionBackend().runTimer(this::tick, 1L, 1L);
+        return true;
+    }
+
+    /**
+     * 取消当前更新，丢弃剩余工作单元
+     */
+    public void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        requeued.clear();
+        completionHandler = null;
+    }
+
+    /**
+     * 登记工作单元启动的异步任务，全部完成前本次更新不会结束
+     *
+     * @param future 异步任务
+     */
+    public void trackAsync(CompletableFuture<?> future) {
+        AtomicInteger pending = pendingAsync;
+        pending.incrementAndGet();
+        future.whenComplete((result, error) -> pending.decrementAndGet());
+    }
+
+    /**
+     * 检查是否有更新正在进行
+     *
+     * @return 是否正在进行
+     */
+    public boolean isRunning() {
+        return task != null;
+    }
+
+    /**
+     * 获取剩余工作单元数量
+     *
+     * @return 剩余数量
+     */
+    public int getRemainingUnits() {
+        return queue.size();
+    }
+
+    /**
+     * 获取本次更新已运行的时间
+     *
+     * @return 运行时间（毫秒）
+     */
+    public long getElapsedMillis() {
+        return isRunning() ? System.currentTimeMillis() - passStartTime : 0L;
+    }
+
+    /**
+     * 每tick执行一次，在时间预算内处理工作单元
+     * 超时后不再执行新的工作单元，等已在途的异步任务全部结束后才报告结果
+     */
+    private void tick() {
+        if (abortMessage != null) {
+            // 已超时，在途的工作单元推迟的剩余工作直接丢弃
+            requeued.clear();
+        } else {
+            // 被推迟的工作单元排到队尾，等其他单元处理后再执行
+            WorkUnit deferred;
+            while ((deferred = requeued.poll()) != null) {
+                queue.addLast(deferred);
+            }
+
+            if (plugin.getExecutionBackend().isRegionized()) {
+                dispatchUnits();
+            } else {
+                runUnits();
+            }
+        }
+
+        progressListener.run();
+
+        if (queue.isEmpty() && requeued.isEmpty() && pendingAsync.get() == 0) {
+            finish(abortMessage == null
+                ? new BatchUpdateResult(true, "更新完成", statistics)
+                : new BatchUpdateResult(false, abortMessage, statistics));
+            return;
+        }
+
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(plugin.getConfigManager().getPassTimeout());
+        if (abortMessage == null && timeoutMillis > 0 && System.currentTimeMillis() - passStartTime > timeoutMillis) {
+            int remaining = queue.size() + requeued.size();
+            queue.clear();
+            requeued.clear();
+            abortMessage = String.format("更新超时，放弃剩余 %d 个工作单元", remaining);
+        }
+    }
+
+    /**
+     * 在当前线程（主线程）上按时间预算执行工作单元
+     */
+    private void runUnits() {
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(plugin.getConfigManager().getTickBudgetMillis());
+        int maxPlayers = plugin.getConfigManager().getMaxConcurrentPlayers();
+        long tickStart = System.nanoTime();
+        int playersThisTick = 0;
+
+        while (!queue.isEmpty()) {
+            WorkUnit unit = queue.peek();
+            if (unit.getType() == UnitType.PLAYER && playersThisTick >= maxPlayers) {
+                break;
+            }
+
+            queue.poll();
+            executeUnit(unit, statistics);
+
+            if (unit.getType() == UnitType.PLAYER) {
+                playersThisTick++;
+            }
+
+            if (System.nanoTime() - tickStart >= budgetNanos) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 将工作单元分发到所属实体或区块的线程上执行
+     */
+    private void dispatchUnits() {
+        ExecutionBackend backend = plugin.getExecutionBackend();
+        int maxPlayers = plugin.getConfigManager().getMaxConcurrentPlayers();
+        int playersThisTick = 0;
+
+        while (!queue.isEmpty() && pendingAsync.get() < MAX_DISPATCHED_UNITS) {
+            WorkUnit unit = queue.peek();
+            if (unit.getType() == UnitType.PLAYER && playersThisTick >= maxPlayers) {
+                break;
+            }
+
+            queue.poll();
+            if (unit.getType() == UnitType.PLAYER) {
+                playersThisTick++;
+            }
+
+            BatchUpdateStatistics passStatistics = statistics;
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            trackAsync(future);
+
+            Runnable run = () -> {
+                try {
+                    executeUnit(unit, passStatistics);
+                } finally {
+                    future.complete(null);
+                }
+            };
+
+            Runnable retired = () -> {
+                completedUnits.incrementAndGet();
+                future.complete(null);
+            };
+
+            if (unit.getPlayerId() != null) {
+                // 分发时才按UUID查找玩家，已退出的玩家直接视为完成
+                Player owner = Bukkit.getPlayer(unit.getPlayerId());
+                if (owner != null) {
+                    backend.runForEntity(owner, run, retired, 0L);
+                } else {
+                    retired.run();
+                }
+            } else if (unit.getWorld() != null) {
+                backend.runAtChunk(unit.getWorld(), unit.getChunkX(), unit.getChunkZ(), run);
+            } else {
+                run.run();
+            }
+        }
+    }
+
+    /**
+     * 执行单个工作单元
+     *
+     * @param unit 工作单元
+     * @param passStatistics 本次更新的统计信息
+     */
+    private void executeUnit(WorkUnit unit, BatchUpdateStatistics passStatistics) {
+        try {
+            unit.getAction().execute(passStatistics);
+        } catch (UnitDeferredException e) {
+            requeue(unit, e.getMessage());
+        } catch (Exception e) {
+            plugin.getLogger().warning(String.format("[UpdateScheduler] 执行工作单元失败 (%s): %s",
+                unit.getDescription(), e.getMessage()));
+        } finally {
+            completedUnits.incrementAndGet();
+        }
+    }
+
+    /**
+     * 将超出时间预算的工作单元重新排队，多次推迟后放弃
+     * 可能在区域线程上调用，先放入并发队列，下一tick再并入主队列
+     *
+     * @param unit 工作单元
+     * @param reason 推迟原因
+     */
+    private void requeue(WorkUnit unit, String reason) {
+        if (unit.attempts.incrementAndGet() >= MAX_UNIT_ATTEMPTS) {
+            plugin.getLogger().warning(String.format("[UpdateScheduler] 工作单元多次超出时间预算，放弃剩余工作 (%s): %s",
+                unit.getDescription(), reason));
+            return;
+        }
+
+        totalUnits.incrementAndGet();
+        requeued.add(unit);
+    }
+
+    /**
+     * 结束当前更新并通知回调
+     *
+     * @param result 更新结果
+     */
+    private void finish(BatchUpdateResult result) {
+        Consumer<BatchUpdateResult> handler = completionHandler;
+        cancel();
+
+        if (handler != null) {
+            handler.accept(result);
+        }
+    }
+
+    /**
+     * 工作单元类型
+     */
+    public enum UnitType {
+        PLAYER,
+        CHUNK,
+        ENTITIES
+    }
+
+    /**
+     * 工作单元超出时间预算，剩余工作需要稍后重新执行
+     */
+    public static class UnitDeferredException extends Exception {
+        public UnitDeferredException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 工作单元执行接口
+     */
+    @FunctionalInterface
+    public interface UnitAction {
+        void execute(BatchUpdateStatistics statistics) throws Exception;
+    }
+
+    /**
+     * 工作单元：一个玩家、一个区块或一组实体
+     * 可指定所属玩家或区块，区域化后端据此选择执行线程
+     * 玩家只记录UUID，不在等待执行期间持有玩家对象
+     */
+    public static class WorkUnit {
+        private final UnitType type;
+        private final String description;
+        private final UnitAction action;
+        private final UUID playerId;
+        private final AtomicInteger attempts;
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+
+        public WorkUnit(UnitType type, String description, UnitAction action) {
+            this(type, description, null, null, 0, 0, action);
+        }
+
+        public WorkUnit(UnitType type, String description, UUID playerId, UnitAction action) {
+            this(type, description, playerId, null, 0, 0, action);
+        }
+
+        public WorkUnit(UnitType type, String description, World world, int chunkX, int chunkZ, UnitAction action) {
+            this(type, description, null, world, chunkX, chunkZ, action);
+        }
+
+        private WorkUnit(UnitType type, String description, UUID playerId, World world, int chunkX, int chunkZ,
+                         UnitAction action) {
+            this.type = type;
+            this.description = description;
+            this.playerId = playerId;
+            this.attempts = new AtomicInteger(0);
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.action = action;
+        }
+
+        public UnitType getType() {
+            return type;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public UnitAction getAction() {
+            return action;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        public World getWorld() {
+            return world;
+        }
+
+        public int getChunkX() {
+            return chunkX;
+        }
+
+        public int getChunkZ() {
+            return chunkZ;
+        }
+    }
+}
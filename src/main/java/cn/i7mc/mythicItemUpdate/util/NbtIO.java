@@ -0,0 +1,497 @@
+package cn.i7mc.mythicItemUpdate.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 最小化的NBT读写工具
+ * 只处理gzip压缩、以复合标签为根的NBT数据（玩家数据文件和物品序列化格式）
+ * 读取时可以只解码指定的顶层条目，其余条目按原始字节原样保留并写回
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+public final class NbtIO {
+
+    public static final byte TAG_END = 0;
+    public static final byte TAG_BYTE = 1;
+    public static final byte TAG_SHORT = 2;
+    public static final byte TAG_INT = 3;
+    public static final byte TAG_LONG = 4;
+    public static final byte TAG_FLOAT = 5;
+    public static final byte TAG_DOUBLE = 6;
+    public static final byte TAG_BYTE_ARRAY = 7;
+    public static final byte TAG_STRING = 8;
+    public static final byte TAG_LIST = 9;
+    public static final byte TAG_COMPOUND = 10;
+    public static final byte TAG_INT_ARRAY = 11;
+    public static final byte TAG_LONG_ARRAY = 12;
+
+    // 嵌套深度上限，防止损坏的文件导致栈溢出
+    private static final int MAX_DEPTH = 512;
+
+    private NbtIO() {
+    }
+
+    /**
+     * 读取gzip压缩的NBT数据
+     *
+     * @param input 输入流
+     * @param decodeKeys 需要解码的顶层条目名称，为null时全部解码
+     * @return 根复合标签
+     * @throws IOException 读取失败或格式错误
+     */
+    public static Compound readCompressed(InputStream input, Set<String> decodeKeys) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input)));
+        byte type = in.readByte();
+        if (type != TAG_COMPOUND) {
+            throw new IOException("根标签不是复合标签: " + type);
+        }
+
+        in.readUTF();
+        return readCompound(in, decodeKeys, 0);
+    }
+
+    /**
+     * 完整解码gzip压缩的NBT数据
+     *
+     * @param data 压缩数据
+     * @return 根复合标签
+     * @throws IOException 读取失败或格式错误
+     */
+    public static Compound readCompressed(byte[] data) throws IOException {
+        return readCompressed(new ByteArrayInputStream(data), null);
+    }
+
+    /**
+     * 以gzip压缩格式写出NBT数据
+     *
+     * @param root 根复合标签
+     * @param output 输出流
+     * @throws IOException 写出失败
+     */
+    public static void writeCompressed(Compound root, OutputStream output) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(output);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+        out.writeByte(TAG_COMPOUND);
+        out.writeUTF("");
+        writeCompound(root, out);
+        out.flush();
+        gzip.finish();
+    }
+
+    /**
+     * 以gzip压缩格式写出NBT数据
+     *
+     * @param root 根复合标签
+     * @return 压缩数据
+     * @throws IOException 写出失败
+     */
+    public static byte[] writeCompressed(Compound root) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        writeCompressed(root, buffer);
+        return buffer.toByteArray();
+    }
+
+    private static Compound readCompound(DataInput in, Set<String> decodeKeys, int depth) throws IOException {
+        checkDepth(depth);
+        Compound compound = new Compound();
+
+        while (true) {
+            byte type = in.readByte();
+            if (type == TAG_END) {
+                return compound;
+            }
+
+            String name = in.readUTF();
+            if (decodeKeys == null || decodeKeys.contains(name)) {
+                compound.put(name, new Tag(type, readPayload(type, in, depth + 1), false));
+            } else {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                transferPayload(type, in, new DataOutputStream(buffer), depth + 1);
+                compound.put(name, new Tag(type, buffer.toByteArray(), true));
+            }
+        }
+    }
+
+    private static Object readPayload(byte type, DataInput in, int depth) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_BYTE_ARRAY: {
+                byte[] value = new byte[readLength(in)];
+                in.readFully(value);
+                return value;
+            }
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_LIST: {
+                checkDepth(depth);
+                byte elementType = in.readByte();
+                int length = readLength(in);
+                ListTag list = new ListTag(elementType);
+                for (int i = 0; i < length; i++) {
+                    list.add(readPayload(elementType, in, depth + 1));
+                }
+                return list;
+            }
+            case TAG_COMPOUND:
+                return readCompound(in, null, depth);
+            case TAG_INT_ARRAY: {
+                int[] value = new int[readLength(in)];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = in.readInt();
+                }
+                return value;
+            }
+            case TAG_LONG_ARRAY: {
+                long[] value = new long[readLength(in)];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = in.readLong();
+                }
+                return value;
+            }
+            default:
+                throw new IOException("未知的NBT标签类型: " + type);
+        }
+    }
+
+    /**
+     * 不解码地复制一个标签的负载
+     */
+    private static void transferPayload(byte type, DataInput in, DataOutput out, int depth) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                copy(in, out, 1);
+                break;
+            case TAG_SHORT:
+                copy(in, out, 2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                copy(in, out, 4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                copy(in, out, 8);
+                break;
+            case TAG_BYTE_ARRAY: {
+                int length = readLength(in);
+                out.writeInt(length);
+                copy(in, out, length);
+                break;
+            }
+            case TAG_STRING: {
+                int length = in.readUnsignedShort();
+                out.writeShort(length);
+                copy(in, out, length);
+                break;
+            }
+            case TAG_LIST: {
+                checkDepth(depth);
+                byte elementType = in.readByte();
+                int length = readLength(in);
+                out.writeByte(elementType);
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    transferPayload(elementType, in, out, depth + 1);
+                }
+                break;
+            }
+            case TAG_COMPOUND: {
+                checkDepth(depth);
+                while (true) {
+                    byte entryType = in.readByte();
+                    out.writeByte(entryType);
+                    if (entryType == TAG_END) {
+                        break;
+                    }
+                    out.writeUTF(in.readUTF());
+                    transferPayload(entryType, in, out, depth + 1);
+                }
+                break;
+            }
+            case TAG_INT_ARRAY: {
+                int length = readLength(in);
+                out.writeInt(length);
+                copy(in, out, (long) length * 4);
+                break;
+            }
+            case TAG_LONG_ARRAY: {
+                int length = readLength(in);
+                out.writeInt(length);
+                copy(in, out, (long) length * 8);
+                break;
+            }
+            default:
+                throw new IOException("未知的NBT标签类型: " + type);
+        }
+    }
+
+    private static void writeCompound(Compound compound, DataOutput out) throws IOException {
+        for (Map.Entry<String, Tag> entry : compound.entries.entrySet()) {
+            Tag tag = entry.getValue();
+            out.writeByte(tag.type);
+            out.writeUTF(entry.getKey());
+            if (tag.raw) {
+                out.write((byte[]) tag.value);
+            } else {
+                writePayload(tag.type, tag.value, out);
+            }
+        }
+        out.writeByte(TAG_END);
+    }
+
+    private static void writePayload(byte type, Object value, DataOutput out) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case TAG_SHORT:
+                out.writeShort((Short) value);
+                break;
+            case TAG_INT:
+                out.writeInt((Integer) value);
+                break;
+            case TAG_LONG:
+                out.writeLong((Long) value);
+                break;
+            case TAG_FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case TAG_DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case TAG_BYTE_ARRAY: {
+                byte[] array = (byte[]) value;
+                out.writeInt(array.length);
+                out.write(array);
+                break;
+            }
+            case TAG_STRING:
+                out.writeUTF((String) value);
+                break;
+            case TAG_LIST: {
+                ListTag list = (ListTag) value;
+                out.writeByte(list.isEmpty() ? TAG_END : list.elementType);
+                out.writeInt(list.size());
+                for (Object element : list.values) {
+                    writePayload(list.elementType, element, out);
+                }
+                break;
+            }
+            case TAG_COMPOUND:
+                writeCompound((Compound) value, out);
+                break;
+            case TAG_INT_ARRAY: {
+                int[] array = (int[]) value;
+                out.writeInt(array.length);
+                for (int element : array) {
+                    out.writeInt(element);
+                }
+                break;
+            }
+            case TAG_LONG_ARRAY: {
+                long[] array = (long[]) value;
+                out.writeInt(array.length);
+                for (long element : array) {
+                    out.writeLong(element);
+                }
+                break;
+            }
+            default:
+                throw new IOException("未知的NBT标签类型: " + type);
+        }
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("NBT长度无效: " + length);
+        }
+        return length;
+    }
+
+    private static void copy(DataInput in, DataOutput out, long length) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(length, 8192)];
+        long remaining = length;
+        while (remaining > 0) {
+            int chunk = (int) Math.min(remaining, buffer.length);
+            in.readFully(buffer, 0, chunk);
+            out.write(buffer, 0, chunk);
+            remaining -= chunk;
+        }
+    }
+
+    private static void checkDepth(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("NBT嵌套层数过深");
+        }
+    }
+
+    /**
+     * 单个NBT条目
+     * 未解码的条目保存原始负载字节
+     */
+    private static final class Tag {
+        private final byte type;
+        private final Object value;
+        private final boolean raw;
+
+        private Tag(byte type, Object value, boolean raw) {
+            this.type = type;
+            this.value = value;
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * 复合标签，保持条目的原始顺序
+     */
+    public static final class Compound {
+        private final Map<String, Tag> entries = new LinkedHashMap<>();
+
+        /**
+         * 获取已解码的条目值
+         *
+         * @param name 条目名称
+         * @return 条目值，不存在或未解码时返回null
+         */
+        public Object get(String name) {
+            Tag tag = entries.get(name);
+            return tag != null && !tag.raw ? tag.value : null;
+        }
+
+        /**
+         * 获取整数条目
+         *
+         * @param name 条目名称
+         * @param defaultValue 默认值
+         * @return 整数值
+         */
+        public int getInt(String name, int defaultValue) {
+            Object value = get(name);
+            return value instanceof Integer ? (Integer) value : defaultValue;
+        }
+
+        /**
+         * 获取列表条目
+         *
+         * @param name 条目名称
+         * @return 列表，不存在或未解码时返回null
+         */
+        public ListTag getList(String name) {
+            Object value = get(name);
+            return value instanceof ListTag ? (ListTag) value : null;
+        }
+
+        /**
+         * 设置条目，值的类型决定标签类型
+         *
+         * @param name 条目名称
+         * @param type 标签类型
+         * @param value 条目值
+         */
+        public void put(String name, byte type, Object value) {
+            entries.put(name, new Tag(type, value, false));
+        }
+
+        /**
+         * 移除条目
+         *
+         * @param name 条目名称
+         * @return 是否存在该条目
+         */
+        public boolean remove(String name) {
+            return entries.remove(name) != null;
+        }
+
+        /**
+         * 获取所有条目名称
+         *
+         * @return 条目名称集合
+         */
+        public Set<String> names() {
+            return entries.keySet();
+        }
+
+        /**
+         * 复制指定条目到另一个复合标签（包括未解码的条目）
+         *
+         * @param name 条目名称
+         * @param target 目标复合标签
+         */
+        public void copyTo(String name, Compound target) {
+            Tag tag = entries.get(name);
+            if (tag != null) {
+                target.entries.put(name, tag);
+            }
+        }
+
+        private void put(String name, Tag tag) {
+            entries.put(name, tag);
+        }
+    }
+
+    /**
+     * 列表标签
+     */
+    public static final class ListTag {
+        private final byte elementType;
+        private final List<Object> values = new ArrayList<>();
+
+        private ListTag(byte elementType) {
+            this.elementType = elementType;
+        }
+
+        public byte getElementType() {
+            return elementType;
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        public Object get(int index) {
+            return values.get(index);
+        }
+
+        public void set(int index, Object value) {
+            values.set(index, value);
+        }
+
+        private void add(Object value) {
+            values.add(value);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package cn.i7mc.mythicItemUpdate.util;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Chest;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -155,6 +160,21 @@ public class Utils {
         return (player != null && player.isOnline()) ? player : null;
     }
     
+    /**
+     * 按UUID获取在线玩家
+     * 
+     * @param playerId 玩家UUID
+     * @return 玩家对象或null
+     */
+    public static Player getOnlinePlayer(UUID playerId) {
+        if (playerId == null) {
+            return null;
+        }
+        
+        Player player = Bukkit.getPlayer(playerId);
+        return (player != null && player.isOnline()) ? player : null;
+    }
+    
     /**
      * 获取所有在线玩家列表
      * 
@@ -164,6 +184,25 @@ public class Utils {
         return new ArrayList<>(Bukkit.getOnlinePlayers());
     }
     
+    /**
+     * 获取方块自身的物品栏
+     * 大箱子只返回当前这一半，避免两个方块重复处理同一组物品
+     * 
+     * @param blockState 方块状态
+     * @return 物品栏，如果不是容器则返回null
+     */
+    public static Inventory getBlockInventory(BlockState blockState) {
+        if (blockState instanceof Chest) {
+            return ((Chest) blockState).getBlockInventory();
+        }
+        
+        if (blockState instanceof InventoryHolder) {
+            return ((InventoryHolder) blockState).getInventory();
+        }
+        
+        return null;
+    }
+    
     /**
      * 格式化时间（毫秒转换为可读格式）
      * 
@@ -189,6 +228,25 @@ public class Utils {
         return hours + "h " + (minutes % 60) + "m " + (seconds % 60) + "s";
     }
     
+    /**
+     * 计算字节数组的64位FNV-1a哈希
+     *
+     * @param data 字节数组
+     * @return 哈希值
+     */
+    public static long hash64(byte[] data) {
+        long hash = 0xcbf29ce484222325L;
+        if (data == null) {
+            return hash;
+        }
+        
+        for (byte b : data) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
     /**
      * 检查版本兼容性
      * 
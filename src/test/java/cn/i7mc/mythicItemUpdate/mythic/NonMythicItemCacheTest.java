@@ -0,0 +1,98 @@
+package cn.i7mc.mythicItemUpdate.mythic;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 非MythicMobs物品否定结果缓存测试
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+class NonMythicItemCacheTest {
+
+    @Test
+    void rememberedIdentityHits() {
+        NonMythicItemCache cache = new NonMythicItemCache();
+        long identity = cache.identify(itemOf(Material.STONE), mock(ItemMeta.class));
+
+        assertFalse(cache.contains(identity));
+        cache.remember(identity);
+        assertTrue(cache.contains(identity));
+
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertEquals(0.5d, cache.getHitRate());
+    }
+
+    @Test
+    void identityDependsOnMaterialAndMeta() {
+        NonMythicItemCache cache = new NonMythicItemCache();
+        ItemMeta meta = mock(ItemMeta.class);
+        ItemMeta otherMeta = mock(ItemMeta.class);
+
+        long stone = cache.identify(itemOf(Material.STONE), meta);
+        assertEquals(stone, cache.identify(itemOf(Material.STONE), meta));
+        assertNotEquals(stone, cache.identify(itemOf(Material.DIRT), meta));
+        assertNotEquals(stone, cache.identify(itemOf(Material.STONE), otherMeta));
+
+        // 材质序号加一放在高位，标识不会与空槽位冲突
+        assertNotEquals(0L, cache.identify(itemOf(Material.values()[0]), meta) >>> 32);
+    }
+
+    @Test
+    void neverReportsIdentitiesThatWereNotRemembered() {
+        NonMythicItemCache cache = new NonMythicItemCache(16);
+
+        // 远多于槽位数量的标识会互相覆盖，但被覆盖的标识只会变成未命中
+        for (long i = 1; i <= 1000; i++) {
+            cache.remember(i);
+        }
+
+        for (long i = 1001; i <= 2000; i++) {
+            assertFalse(cache.contains(i));
+        }
+
+        int retained = 0;
+        for (long i = 1; i <= 1000; i++) {
+            if (cache.contains(i)) {
+                retained++;
+            }
+        }
+        assertTrue(retained > 0 && retained <= 16);
+    }
+
+    @Test
+    void invalidateClearsEntriesButKeepsStatistics() {
+        NonMythicItemCache cache = new NonMythicItemCache();
+        long identity = cache.identify(itemOf(Material.STONE), mock(ItemMeta.class));
+        cache.remember(identity);
+        assertTrue(cache.contains(identity));
+
+        cache.invalidate();
+
+        assertFalse(cache.contains(identity));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    void hitRateIsZeroWithoutLookups() {
+        assertEquals(0.0d, new NonMythicItemCache().getHitRate());
+    }
+
+    private static ItemStack itemOf(Material material) {
+        ItemStack item = mock(ItemStack.class);
+        when(item.getType()).thenReturn(material);
+        return item;
+    }
+}
@@ -0,0 +1,187 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateResult;
+import cn.i7mc.mythicItemUpdate.manager.ConfigManager;
+import cn.i7mc.mythicItemUpdate.mythic.ItemDetector;
+import cn.i7mc.mythicItemUpdate.mythic.ItemTemplateCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重载协调器测试
+ * 静默期计时任务由测试手动执行，验证连续重载的合并和最长等待时间
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+class ReloadCoordinatorTest {
+
+    private static final long QUIET_PERIOD = 20L;
+    private static final long MAX_DELAY = 50L;
+
+    private ConfigManager config;
+    private ItemTemplateCache templateCache;
+    private BatchUpdateManager batchUpdateManager;
+    private ExecutionBackend backend;
+    private Runnable debounceTask;
+    private ReloadCoordinator coordinator;
+
+    @BeforeEach
+    void setUp() {
+        MythicItemUpdate plugin = mock(MythicItemUpdate.class);
+        ItemDetector detector = mock(ItemDetector.class);
+        backend = mock(ExecutionBackend.class);
+        config = mock(ConfigManager.class);
+        templateCache = mock(ItemTemplateCache.class);
+        batchUpdateManager = mock(BatchUpdateManager.class);
+
+        when(plugin.getExecutionBackend()).thenReturn(backend);
+        when(plugin.getConfigManager()).thenReturn(config);
+        when(plugin.getItemDetector()).thenReturn(detector);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("ReloadCoordinatorTest"));
+        when(detector.reload()).thenReturn(true);
+        when(detector.isMythicAvailable()).thenReturn(true);
+        when(detector.getTemplateCache()).thenReturn(templateCache);
+        when(backend.runTimer(any(Runnable.class), anyLong(), anyLong())).thenAnswer(invocation -> {
+            debounceTask = invocation.getArgument(0);
+            return (ExecutionBackend.TaskHandle) () -> debounceTask = null;
+        });
+        when(config.isAutoUpdateEnabled()).thenReturn(true);
+        when(config.isUpdateOfflinePlayersEnabled()).thenReturn(false);
+        when(config.getReloadQuietPeriod()).thenReturn(QUIET_PERIOD);
+        when(config.getReloadMaxDelay()).thenReturn(MAX_DELAY);
+        when(batchUpdateManager.startScheduledUpdate(any(), any())).thenReturn(true);
+
+        coordinator = new ReloadCoordinator(plugin, batchUpdateManager);
+    }
+
+    @Test
+    void startsOnceQuietPeriodElapses() {
+        reload("sword");
+        assertTrue(coordinator.isDebouncing());
+
+        ticks(QUIET_PERIOD - 1);
+        verify(batchUpdateManager, never()).startScheduledUpdate(any(), any());
+
+        ticks(1);
+        verify(batchUpdateManager, times(1)).startScheduledUpdate(names("sword"), anyCompletion());
+        assertFalse(coordinator.isDebouncing());
+    }
+
+    @Test
+    void reloadDuringQuietPeriodRestartsTimerAndMergesChanges() {
+        reload("sword");
+        ticks(QUIET_PERIOD - 5);
+        reload("shield");
+
+        ticks(QUIET_PERIOD - 1);
+        verify(batchUpdateManager, never()).startScheduledUpdate(any(), any());
+
+        ticks(1);
+        verify(batchUpdateManager, times(1)).startScheduledUpdate(names("sword", "shield"), anyCompletion());
+
+        // 整个静默期只启动一个计时任务
+        verify(backend, times(1)).runTimer(any(Runnable.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void maxDelayBoundsContinuousReloads() {
+        reload("a");
+        for (int i = 0; i < 4; i++) {
+            ticks(QUIET_PERIOD / 2);
+            reload("b" + i);
+        }
+
+        // 已过去40个tick，从第一次重载起第50个tick开始更新，此时距最近一次重载还不到静默期
+        ticks(9);
+        verify(batchUpdateManager, never()).startScheduledUpdate(any(), any());
+        ticks(1);
+        verify(batchUpdateManager, times(1)).startScheduledUpdate(names("a", "b0", "b1", "b2", "b3"), anyCompletion());
+    }
+
+    @Test
+    void zeroQuietPeriodStartsImmediately() {
+        when(config.getReloadQuietPeriod()).thenReturn(0L);
+
+        reload("sword");
+
+        verify(batchUpdateManager, times(1)).startScheduledUpdate(names("sword"), anyCompletion());
+        verify(backend, never()).runTimer(any(Runnable.class), anyLong(), anyLong());
+        assertFalse(coordinator.isDebouncing());
+    }
+
+    @Test
+    void sameSourceIsHandledOnce() {
+        Object event = new Object();
+        changed("sword");
+
+        assertTrue(coordinator.handleReload(event));
+        assertFalse(coordinator.handleReload(event));
+        assertEquals(1L, coordinator.getGeneration());
+    }
+
+    @Test
+    void reloadWithoutChangesDoesNotWait() {
+        when(templateCache.hasChanges()).thenReturn(false);
+
+        coordinator.handleReload(new Object());
+
+        assertFalse(coordinator.isDebouncing());
+        verify(batchUpdateManager, never()).startScheduledUpdate(any(), any());
+    }
+
+    @Test
+    void shutdownCancelsPendingPass() {
+        reload("sword");
+
+        coordinator.shutdown();
+        ticks(MAX_DELAY);
+
+        assertFalse(coordinator.isDebouncing());
+        verify(batchUpdateManager, never()).startScheduledUpdate(any(), any());
+    }
+
+    private void reload(String... changedNames) {
+        changed(changedNames);
+        assertTrue(coordinator.handleReload(new Object()));
+    }
+
+    private void changed(String... changedNames) {
+        when(templateCache.hasChanges()).thenReturn(true);
+        when(templateCache.getChangedNames()).thenReturn(new HashSet<>(Arrays.asList(changedNames)));
+    }
+
+    private void ticks(long count) {
+        for (long i = 0; i < count && debounceTask != null; i++) {
+            debounceTask.run();
+        }
+    }
+
+    private static Set<String> names(String... values) {
+        return eq(new HashSet<>(Arrays.asList(values)));
+    }
+
+    private static Consumer<BatchUpdateResult> anyCompletion() {
+        return any();
+    }
+}
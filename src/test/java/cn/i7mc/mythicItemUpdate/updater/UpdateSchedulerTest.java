@@ -0,0 +1,199 @@
+package cn.i7mc.mythicItemUpdate.updater;
+
+import cn.i7mc.mythicItemUpdate.MythicItemUpdate;
+import cn.i7mc.mythicItemUpdate.core.ExecutionBackend;
+import cn.i7mc.mythicItemUpdate.data.BatchUpdateResult;
+import cn.i7mc.mythicItemUpdate.manager.ConfigManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分时更新调度器测试
+ * 每tick的定时任务由测试手动执行，验证推迟的工作单元重新排队和推迟次数上限
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+class UpdateSchedulerTest {
+
+    private ConfigManager config;
+    private Runnable tickTask;
+    private AtomicInteger completedUnits;
+    private AtomicInteger totalUnits;
+    private UpdateScheduler scheduler;
+    private BatchUpdateResult result;
+
+    @BeforeEach
+    void setUp() {
+        MythicItemUpdate plugin = mock(MythicItemUpdate.class);
+        ExecutionBackend backend = mock(ExecutionBackend.class);
+        config = mock(ConfigManager.class);
+
+        when(plugin.getExecutionBackend()).thenReturn(backend);
+        when(plugin.getConfigManager()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("UpdateSchedulerTest"));
+        when(backend.isRegionized()).thenReturn(false);
+        when(backend.runTimer(any(Runnable.class), anyLong(), anyLong())).thenAnswer(invocation -> {
+            tickTask = invocation.getArgument(0);
+            return (ExecutionBackend.TaskHandle) () -> tickTask = null;
+        });
+        when(config.getTickBudgetMillis()).thenReturn(1000L);
+        when(config.getMaxConcurrentPlayers()).thenReturn(100);
+        when(config.getPassTimeout()).thenReturn(0L);
+
+        completedUnits = new AtomicInteger();
+        totalUnits = new AtomicInteger();
+        scheduler = new UpdateScheduler(plugin, completedUnits, totalUnits, () -> { });
+        result = null;
+    }
+
+    @Test
+    void runsEveryUnitAndFinishes() {
+        List<String> executed = new ArrayList<>();
+        start(unit("a", executed, 0), unit("b", executed, 0));
+
+        tick();
+
+        assertEquals(Arrays.asList("a", "b"), executed);
+        assertFinished(true);
+        assertEquals(2, completedUnits.get());
+        assertEquals(2, totalUnits.get());
+    }
+
+    @Test
+    void deferredUnitIsRequeuedBehindOtherUnits() {
+        List<String> executed = new ArrayList<>();
+        start(unit("a", executed, 1), unit("b", executed, 0));
+
+        tick();
+        assertEquals(Arrays.asList("a", "b"), executed);
+        assertNull(result);
+
+        tick();
+        assertEquals(Arrays.asList("a", "b", "a"), executed);
+        assertFinished(true);
+
+        // 推迟一次多出一个工作单元
+        assertEquals(3, totalUnits.get());
+        assertEquals(3, completedUnits.get());
+    }
+
+    @Test
+    void unitIsAbandonedAfterMaxAttempts() {
+        List<String> executed = new ArrayList<>();
+        start(unit("a", executed, Integer.MAX_VALUE));
+
+        for (int i = 0; i < 10 && result == null; i++) {
+            tick();
+        }
+
+        // 第三次推迟后放弃，不再重新排队
+        assertEquals(Arrays.asList("a", "a", "a"), executed);
+        assertFinished(true);
+        assertEquals(3, totalUnits.get());
+        assertEquals(3, completedUnits.get());
+    }
+
+    @Test
+    void waitsForTrackedAsyncWork() {
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        start(new UpdateScheduler.WorkUnit(UpdateScheduler.UnitType.PLAYER, "async",
+            statistics -> scheduler.trackAsync(pending)));
+
+        tick();
+        tick();
+        assertNull(result);
+        assertTrue(scheduler.isRunning());
+
+        pending.complete(null);
+        tick();
+        assertFinished(true);
+    }
+
+    @Test
+    void timeoutDropsRemainingUnitsAndReportsFailure() {
+        when(config.getPassTimeout()).thenReturn(1L);
+        when(config.getMaxConcurrentPlayers()).thenReturn(1);
+        List<String> executed = new ArrayList<>();
+        start(unit("a", executed, 0), unit("b", executed, 0), unit("c", executed, 0));
+
+        tick();
+        assertEquals(Collections.singletonList("a"), executed);
+
+        sleepPastTimeout();
+        tick();
+        tick();
+
+        assertEquals(Arrays.asList("a", "b"), executed);
+        assertFinished(false);
+        assertEquals(0, scheduler.getRemainingUnits());
+    }
+
+    @Test
+    void refusesToStartWhileRunning() {
+        start(unit("a", new ArrayList<>(), 0));
+
+        assertFalse(scheduler.start(Collections.emptyList(), finished -> { }));
+    }
+
+    private void start(UpdateScheduler.WorkUnit... units) {
+        assertTrue(scheduler.start(Arrays.asList(units), finished -> result = finished));
+        assertNotNull(tickTask);
+    }
+
+    private void tick() {
+        if (tickTask != null) {
+            tickTask.run();
+        }
+    }
+
+    private void assertFinished(boolean success) {
+        assertNotNull(result);
+        assertEquals(success, result.isSuccess());
+        assertFalse(scheduler.isRunning());
+    }
+
+    /**
+     * 创建记录执行顺序的工作单元
+     *
+     * @param name 名称
+     * @param executed 执行记录
+     * @param deferrals 推迟的次数，之后正常完成
+     * @return 工作单元
+     */
+    private static UpdateScheduler.WorkUnit unit(String name, List<String> executed, int deferrals) {
+        AtomicInteger remaining = new AtomicInteger(deferrals);
+        return new UpdateScheduler.WorkUnit(UpdateScheduler.UnitType.PLAYER, name, statistics -> {
+            executed.add(name);
+            if (remaining.getAndDecrement() > 0) {
+                throw new UpdateScheduler.UnitDeferredException("超出时间预算");
+            }
+        });
+    }
+
+    private static void sleepPastTimeout() {
+        try {
+            Thread.sleep(1100L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
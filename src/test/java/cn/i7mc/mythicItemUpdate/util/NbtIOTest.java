@@ -0,0 +1,216 @@
+package cn.i7mc.mythicItemUpdate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * NbtIO读写测试
+ * 测试数据按玩家数据文件的结构手工编码，不依赖服务器
+ *
+ * @author i7mc
+ * @version 1.0
+ */
+class NbtIOTest {
+
+    private static final Set<String> DECODE_KEYS = new HashSet<>(Arrays.asList("Inventory", "DataVersion"));
+
+    @Test
+    void fullDecodeRoundTripIsByteIdentical() throws IOException {
+        byte[] original = samplePlayerData();
+
+        NbtIO.Compound root = NbtIO.readCompressed(original);
+
+        assertArrayEquals(decompress(original), decompress(NbtIO.writeCompressed(root)));
+    }
+
+    @Test
+    void partialDecodeRoundTripKeepsUndecodedEntries() throws IOException {
+        byte[] original = samplePlayerData();
+
+        NbtIO.Compound root = NbtIO.readCompressed(new ByteArrayInputStream(original), DECODE_KEYS);
+
+        // 未解码的条目按原始字节写回，顺序不变
+        assertArrayEquals(decompress(original), decompress(NbtIO.writeCompressed(root)));
+    }
+
+    @Test
+    void undecodedEntriesAreListedButNotExposed() throws IOException {
+        NbtIO.Compound root = NbtIO.readCompressed(new ByteArrayInputStream(samplePlayerData()), DECODE_KEYS);
+
+        assertEquals(3465, root.getInt("DataVersion", -1));
+        assertNotNull(root.getList("Inventory"));
+        assertTrue(root.names().containsAll(Arrays.asList("Pos", "Attributes", "Name", "Seeds")));
+        assertNull(root.get("Pos"));
+        assertNull(root.get("Attributes"));
+        assertNull(root.getList("Pos"));
+    }
+
+    @Test
+    void modifiedListIsWrittenAlongsideUndecodedEntries() throws IOException {
+        NbtIO.Compound root = NbtIO.readCompressed(new ByteArrayInputStream(samplePlayerData()), DECODE_KEYS);
+
+        NbtIO.ListTag inventory = root.getList("Inventory");
+        NbtIO.Compound replacement = new NbtIO.Compound();
+        ((NbtIO.Compound) inventory.get(0)).copyTo("Slot", replacement);
+        replacement.put("id", NbtIO.TAG_STRING, "minecraft:diamond");
+        replacement.put("Count", NbtIO.TAG_BYTE, (byte) 5);
+        inventory.set(0, replacement);
+
+        NbtIO.Compound reread = NbtIO.readCompressed(NbtIO.writeCompressed(root));
+
+        NbtIO.Compound item = (NbtIO.Compound) reread.getList("Inventory").get(0);
+        assertEquals("minecraft:diamond", item.get("id"));
+        assertEquals((byte) 5, item.get("Count"));
+        assertEquals((byte) 0, item.get("Slot"));
+        assertEquals(3, reread.getList("Pos").size());
+        assertEquals("Steve", reread.get("Name"));
+        assertArrayEquals(new long[] {1L, -2L, Long.MAX_VALUE}, (long[]) reread.get("Seeds"));
+        assertEquals(20.0d, ((NbtIO.Compound) reread.get("Attributes")).get("Health"));
+    }
+
+    @Test
+    void copyToCarriesUndecodedEntries() throws IOException {
+        NbtIO.Compound root = NbtIO.readCompressed(new ByteArrayInputStream(samplePlayerData()), DECODE_KEYS);
+
+        NbtIO.Compound copy = new NbtIO.Compound();
+        root.copyTo("Attributes", copy);
+        root.copyTo("Missing", copy);
+
+        NbtIO.Compound reread = NbtIO.readCompressed(NbtIO.writeCompressed(copy));
+        assertEquals(1, reread.names().size());
+        assertEquals(20.0d, ((NbtIO.Compound) reread.get("Attributes")).get("Health"));
+    }
+
+    @Test
+    void removedEntriesAreNotWritten() throws IOException {
+        NbtIO.Compound root = NbtIO.readCompressed(new ByteArrayInputStream(samplePlayerData()), DECODE_KEYS);
+
+        assertTrue(root.remove("Pos"));
+        assertTrue(!root.remove("Pos"));
+
+        NbtIO.Compound reread = NbtIO.readCompressed(NbtIO.writeCompressed(root));
+        assertTrue(!reread.names().contains("Pos"));
+        assertEquals("Steve", reread.get("Name"));
+    }
+
+    @Test
+    void rejectsNonCompoundRoot() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            out.writeByte(NbtIO.TAG_STRING);
+            out.writeUTF("");
+            out.writeUTF("not a compound");
+        }
+
+        assertThrows(IOException.class, () -> NbtIO.readCompressed(buffer.toByteArray()));
+    }
+
+    @Test
+    void rejectsNegativeLength() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            out.writeByte(NbtIO.TAG_COMPOUND);
+            out.writeUTF("");
+            out.writeByte(NbtIO.TAG_BYTE_ARRAY);
+            out.writeUTF("Broken");
+            out.writeInt(-1);
+        }
+
+        // 未解码的条目同样要检查长度
+        assertThrows(IOException.class,
+            () -> NbtIO.readCompressed(new ByteArrayInputStream(buffer.toByteArray()), DECODE_KEYS));
+    }
+
+    /**
+     * 编码一份简化的玩家数据：数据版本、背包、坐标、属性、名称和长整型数组
+     *
+     * @return gzip压缩的NBT数据
+     */
+    private static byte[] samplePlayerData() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            out.writeByte(NbtIO.TAG_COMPOUND);
+            out.writeUTF("");
+
+            out.writeByte(NbtIO.TAG_INT);
+            out.writeUTF("DataVersion");
+            out.writeInt(3465);
+
+            out.writeByte(NbtIO.TAG_LIST);
+            out.writeUTF("Inventory");
+            out.writeByte(NbtIO.TAG_COMPOUND);
+            out.writeInt(2);
+            writeItem(out, 0, "minecraft:stone", 64);
+            writeItem(out, 9, "minecraft:iron_sword", 1);
+
+            out.writeByte(NbtIO.TAG_LIST);
+            out.writeUTF("Pos");
+            out.writeByte(NbtIO.TAG_DOUBLE);
+            out.writeInt(3);
+            out.writeDouble(1.5d);
+            out.writeDouble(64.0d);
+            out.writeDouble(-3.25d);
+
+            out.writeByte(NbtIO.TAG_COMPOUND);
+            out.writeUTF("Attributes");
+            out.writeByte(NbtIO.TAG_DOUBLE);
+            out.writeUTF("Health");
+            out.writeDouble(20.0d);
+            out.writeByte(NbtIO.TAG_INT_ARRAY);
+            out.writeUTF("Ids");
+            out.writeInt(2);
+            out.writeInt(7);
+            out.writeInt(-7);
+            out.writeByte(NbtIO.TAG_END);
+
+            out.writeByte(NbtIO.TAG_STRING);
+            out.writeUTF("Name");
+            out.writeUTF("Steve");
+
+            out.writeByte(NbtIO.TAG_LONG_ARRAY);
+            out.writeUTF("Seeds");
+            out.writeInt(3);
+            out.writeLong(1L);
+            out.writeLong(-2L);
+            out.writeLong(Long.MAX_VALUE);
+
+            out.writeByte(NbtIO.TAG_END);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void writeItem(DataOutputStream out, int slot, String id, int count) throws IOException {
+        out.writeByte(NbtIO.TAG_BYTE);
+        out.writeUTF("Slot");
+        out.writeByte(slot);
+        out.writeByte(NbtIO.TAG_STRING);
+        out.writeUTF("id");
+        out.writeUTF(id);
+        out.writeByte(NbtIO.TAG_BYTE);
+        out.writeUTF("Count");
+        out.writeByte(count);
+        out.writeByte(NbtIO.TAG_END);
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}